@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop;
+
+import com.clarionmedia.infinitum.aop.annotation.Aspect;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p> Timings and counts for the phases of AOP post-processing. Each phase accumulates the time spent in it, so
+ * phases which run more than once, such as incremental weaving, report their total. Recording a phase costs two calls
+ * to {@link System#nanoTime()} and an atomic add, and instances are safe to update from multiple threads. </p>
+ * <p> Proxy classes are generated when an advised bean is first materialized rather than during post-processing, so
+ * {@link Phase#PROXY_GENERATION} and {@link Count#GENERATED_CLASSES} continue to grow as beans are requested. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+public class AopStartupMetrics {
+
+    /**
+     * A timed phase of AOP post-processing.
+     */
+    public static enum Phase {
+
+        /**
+         * Collecting the XML aspects and the scanned components annotated with {@link Aspect}.
+         */
+        ASPECT_DISCOVERY,
+
+        /**
+         * Transforming aspects into {@link AspectDefinition}s.
+         */
+        ASPECT_TRANSFORM,
+
+        /**
+         * Matching advice against beans to build {@link Pointcut}s.
+         */
+        POINTCUT_BUILD,
+
+        /**
+         * Generating and instantiating proxy classes for advised beans.
+         */
+        PROXY_GENERATION,
+
+        /**
+         * Creating advised proxies and installing them on their bean definitions.
+         */
+        PROXY_INSTALL
+
+    }
+
+    /**
+     * A counted quantity of AOP post-processing.
+     */
+    public static enum Count {
+
+        /**
+         * Aspects woven, including built-in aspects.
+         */
+        ASPECTS,
+
+        /**
+         * Join points resolved by the pointcut builder.
+         */
+        JOIN_POINTS,
+
+        /**
+         * Advised proxies installed.
+         */
+        PROXIES,
+
+        /**
+         * Distinct proxy classes materialized.
+         */
+        GENERATED_CLASSES
+
+    }
+
+    private final AtomicLongArray mNanos;
+    private final AtomicLongArray mCounts;
+    private final ConcurrentMap<Class<?>, Boolean> mGeneratedClasses;
+
+    /**
+     * Creates a new, empty {@code AopStartupMetrics}.
+     */
+    public AopStartupMetrics() {
+        mNanos = new AtomicLongArray(Phase.values().length);
+        mCounts = new AtomicLongArray(Count.values().length);
+        mGeneratedClasses = new ConcurrentHashMap<Class<?>, Boolean>();
+    }
+
+    /**
+     * Returns a timestamp marking the start of a phase, to be passed to {@link #stop(Phase, long)}.
+     *
+     * @return start timestamp in nanoseconds
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Adds the time elapsed since the given start timestamp to the given phase.
+     *
+     * @param phase the {@link Phase} to record
+     * @param start the timestamp returned by {@link #start()}
+     */
+    public void stop(Phase phase, long start) {
+        mNanos.addAndGet(phase.ordinal(), System.nanoTime() - start);
+    }
+
+    /**
+     * Adds the given amount to the given count.
+     *
+     * @param count the {@link Count} to increment
+     * @param delta the amount to add
+     */
+    public void increment(Count count, long delta) {
+        mCounts.addAndGet(count.ordinal(), delta);
+    }
+
+    /**
+     * Records that a proxy of the given class was materialized, counting the class if it hasn't been seen before.
+     *
+     * @param proxyClass the class of the materialized proxy
+     */
+    public void recordProxyClass(Class<?> proxyClass) {
+        if (mGeneratedClasses.putIfAbsent(proxyClass, Boolean.TRUE) == null)
+            increment(Count.GENERATED_CLASSES, 1);
+    }
+
+    /**
+     * Returns the total time spent in the given phase.
+     *
+     * @param phase the {@link Phase} to retrieve
+     * @param unit  the {@link TimeUnit} to return the time in
+     * @return time spent in the phase
+     */
+    public long getTime(Phase phase, TimeUnit unit) {
+        return unit.convert(mNanos.get(phase.ordinal()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the value of the given count.
+     *
+     * @param count the {@link Count} to retrieve
+     * @return count value
+     */
+    public long getCount(Count count) {
+        return mCounts.get(count.ordinal());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            if (builder.length() > 0)
+                builder.append(", ");
+            builder.append(phase.name().toLowerCase(Locale.US)).append('=')
+                    .append(getTime(phase, TimeUnit.MILLISECONDS)).append("ms");
+        }
+        for (Count count : Count.values())
+            builder.append(", ").append(count.name().toLowerCase(Locale.US)).append('=').append(getCount(count));
+        return builder.toString();
+    }
+
+}
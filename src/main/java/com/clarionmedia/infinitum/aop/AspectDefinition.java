@@ -147,6 +147,10 @@ public class AspectDefinition {
 		 * Used to determine if a {@link Class} qualifies for the containing
 		 * {@link AdviceDefinition}.
 		 * </p>
+		 * <p>
+		 * Pointcuts are built in parallel, so a qualifier may be called from
+		 * several threads at once and must be thread-safe.
+		 * </p>
 		 * 
 		 * @author Tyler Treat
 		 * @version 1.0 12/29/12
@@ -16,6 +16,7 @@
 
 package com.clarionmedia.infinitum.aop;
 
+import java.util.Collection;
 import java.util.Set;
 
 import android.content.Context;
@@ -26,7 +27,7 @@ import android.content.Context;
  * </p>
  * 
  * @author Tyler Treat
- * @version 1.0 07/12/12
+ * @version 1.1.1 10/19/26
  * @since 1.0
  */
 public interface AspectWeaver {
@@ -42,4 +43,16 @@ public interface AspectWeaver {
 	 */
 	void weave(Context context, Set<AspectDefinition> aspects);
 
+	/**
+	 * Weaves the advice from the previously woven aspects into the given
+	 * beans, which were registered after {@link #weave(Context, Set)} was
+	 * called. Only the new beans are matched against the aspects.
+	 * 
+	 * @param context
+	 *            the {@link Context} used to retrieve the bytecode cache from
+	 * @param beanNames
+	 *            the names of the beans to weave
+	 */
+	void weaveIncremental(Context context, Collection<String> beanNames);
+
 }
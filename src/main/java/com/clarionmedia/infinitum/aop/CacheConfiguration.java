@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p> Settings for a single {@link MethodCache}. Settings which haven't been set fall back to their defaults, and
+ * {@link #override(CacheConfiguration)} layers one configuration over another, which is how settings from app
+ * configuration take precedence over those declared on {@link com.clarionmedia.infinitum.aop.annotation.Cache}. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+public class CacheConfiguration {
+
+    /**
+     * Strategy a cache uses to choose which value to evict once it reaches capacity.
+     */
+    public static enum EvictionPolicy {
+
+        /**
+         * Evict the least recently used value.
+         */
+        LRU,
+
+        /**
+         * Admit and evict values based on their recency and estimated frequency of use, which keeps frequently used
+         * values cached through scans. See {@link com.clarionmedia.infinitum.aop.impl.TinyLfuMethodCache}.
+         */
+        TINY_LFU
+
+    }
+
+    /**
+     * Maximum number of values cached if not configured.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 128;
+
+    /**
+     * Eviction policy used if not configured.
+     */
+    public static final EvictionPolicy DEFAULT_EVICTION_POLICY = EvictionPolicy.LRU;
+
+    /**
+     * Longest expiry duration, in nanoseconds, roughly 146 years. Longer durations are capped so that expiry times
+     * can be computed without overflowing.
+     */
+    public static final long MAX_EXPIRY_NANOS = Long.MAX_VALUE >> 1;
+
+    // Marks numeric settings which haven't been set, so that overrides can tell them apart from settings explicitly
+    // set to zero
+    private static final int UNSET = -1;
+
+    private int mMaxEntries = UNSET;
+    private EvictionPolicy mEvictionPolicy;
+    private long mExpireAfterWrite = UNSET;
+    private long mExpireAfterAccess = UNSET;
+
+    /**
+     * Returns the maximum number of values the cache holds.
+     *
+     * @return maximum entries
+     */
+    public int getMaxEntries() {
+        return mMaxEntries > 0 ? mMaxEntries : DEFAULT_MAX_ENTRIES;
+    }
+
+    /**
+     * Sets the maximum number of values the cache holds. A value of zero or less restores the default.
+     *
+     * @param maxEntries the maximum entries
+     */
+    public void setMaxEntries(int maxEntries) {
+        mMaxEntries = Math.max(maxEntries, 0);
+    }
+
+    /**
+     * Returns the {@link EvictionPolicy} the cache uses.
+     *
+     * @return {@code EvictionPolicy}
+     */
+    public EvictionPolicy getEvictionPolicy() {
+        return mEvictionPolicy != null ? mEvictionPolicy : DEFAULT_EVICTION_POLICY;
+    }
+
+    /**
+     * Sets the {@link EvictionPolicy} the cache uses. {@code null} restores the default.
+     *
+     * @param evictionPolicy the {@code EvictionPolicy}
+     */
+    public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+        mEvictionPolicy = evictionPolicy;
+    }
+
+    /**
+     * Returns how long values live after they're written.
+     *
+     * @param unit the {@link TimeUnit} to return the duration in
+     * @return duration or zero if values don't expire after they're written
+     */
+    public long getExpireAfterWrite(TimeUnit unit) {
+        return unit.convert(Math.max(mExpireAfterWrite, 0), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets how long values live after they're written. A duration of zero or less means values don't expire after
+     * they're written, and durations longer than {@link #MAX_EXPIRY_NANOS} are capped.
+     *
+     * @param duration the duration
+     * @param unit     the {@link TimeUnit} of the duration
+     */
+    public void setExpireAfterWrite(long duration, TimeUnit unit) {
+        mExpireAfterWrite = toExpiryNanos(duration, unit);
+    }
+
+    /**
+     * Returns how long values live after they're last read or written.
+     *
+     * @param unit the {@link TimeUnit} to return the duration in
+     * @return duration or zero if values don't expire after they're accessed
+     */
+    public long getExpireAfterAccess(TimeUnit unit) {
+        return unit.convert(Math.max(mExpireAfterAccess, 0), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets how long values live after they're last read or written. A duration of zero or less means values don't
+     * expire after they're accessed, and durations longer than {@link #MAX_EXPIRY_NANOS} are capped.
+     *
+     * @param duration the duration
+     * @param unit     the {@link TimeUnit} of the duration
+     */
+    public void setExpireAfterAccess(long duration, TimeUnit unit) {
+        mExpireAfterAccess = toExpiryNanos(duration, unit);
+    }
+
+    /**
+     * Indicates if values expire after they're written or accessed.
+     *
+     * @return {@code true} if values expire, {@code false} if not
+     */
+    public boolean isExpiring() {
+        return mExpireAfterWrite > 0 || mExpireAfterAccess > 0;
+    }
+
+    /**
+     * Returns a new {@code CacheConfiguration} with this configuration's settings replaced by those which have been
+     * set in the given configuration. A setting explicitly set to zero, or to less than zero, replaces this
+     * configuration's setting with its default.
+     *
+     * @param overrides the {@code CacheConfiguration} to apply
+     * @return new {@code CacheConfiguration}
+     */
+    public CacheConfiguration override(CacheConfiguration overrides) {
+        CacheConfiguration result = new CacheConfiguration();
+        result.mMaxEntries = overrides.mMaxEntries != UNSET ? overrides.mMaxEntries : mMaxEntries;
+        result.mEvictionPolicy = overrides.mEvictionPolicy != null ? overrides.mEvictionPolicy : mEvictionPolicy;
+        result.mExpireAfterWrite = overrides.mExpireAfterWrite != UNSET ? overrides.mExpireAfterWrite
+                : mExpireAfterWrite;
+        result.mExpireAfterAccess = overrides.mExpireAfterAccess != UNSET ? overrides.mExpireAfterAccess
+                : mExpireAfterAccess;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "maxEntries=" + getMaxEntries() + ", evictionPolicy=" + getEvictionPolicy() + ", expireAfterWrite="
+                + getExpireAfterWrite(TimeUnit.SECONDS) + "s, expireAfterAccess="
+                + getExpireAfterAccess(TimeUnit.SECONDS) + "s";
+    }
+
+    private static long toExpiryNanos(long duration, TimeUnit unit) {
+        return Math.min(Math.max(unit.toNanos(duration), 0), MAX_EXPIRY_NANOS);
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop;
+
+import java.util.Collection;
+
+/**
+ * <p> Registry of the named {@link MethodCache}s used for cache abstraction. Caches are created on first use, and
+ * implementations must ensure that concurrent requests for the same name resolve to a single cache. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+public interface CacheManager {
+
+    /**
+     * Returns the cache with the given name, creating it with the default {@link CacheConfiguration} if it doesn't
+     * exist.
+     *
+     * @param name the name of the cache
+     * @return {@link MethodCache}
+     */
+    MethodCache getCache(String name);
+
+    /**
+     * Returns the cache with the given name, creating it with the given {@link CacheConfiguration} if it doesn't
+     * exist. Settings configured for the cache by name take precedence over the given configuration. The
+     * configuration has no effect if the cache already exists.
+     *
+     * @param name          the name of the cache
+     * @param configuration the {@code CacheConfiguration} to create the cache with
+     * @return {@link MethodCache}
+     */
+    MethodCache getCache(String name, CacheConfiguration configuration);
+
+    /**
+     * Returns the names of the caches which have been created.
+     *
+     * @return {@link Collection} of cache names
+     */
+    Collection<String> getCacheNames();
+
+    /**
+     * Removes every value from the cache with the given name. Nothing happens if the cache doesn't exist.
+     *
+     * @param name the name of the cache to evict
+     */
+    void evict(String name);
+
+    /**
+     * Removes every value from every cache.
+     */
+    void evictAll();
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop;
+
+/**
+ * <p> Service provider interface for the {@link MethodCache} implementation used for cache abstraction. A provider is
+ * selected in app configuration with the {@code cacheProvider} property, which names a class implementing this
+ * interface with a public no-argument constructor. </p>
+ * <p> Providers only need to honor the configured capacity and eviction policy, and notify the given listener of the
+ * values they evict. Expiry is applied by the {@link CacheManager}, which decorates the caches of configurations which
+ * expire values and relies on the listener to stop tracking evicted values. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+public interface CacheProvider {
+
+    /**
+     * Creates a new, empty cache.
+     *
+     * @param name          the name of the cache
+     * @param configuration the {@link CacheConfiguration} for the cache
+     * @param listener      the {@link MethodCache.EvictionListener} to notify of evicted values, or {@code null} if
+     *                      evictions don't need to be reported
+     * @return {@link MethodCache}
+     */
+    MethodCache createCache(String name, CacheConfiguration configuration, MethodCache.EvictionListener listener);
+
+}
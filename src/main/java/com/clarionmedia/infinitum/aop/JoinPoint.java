@@ -45,7 +45,7 @@ public interface JoinPoint {
 	 * Describes the type of pointcuts and how it's applied.
 	 */
 	public static enum PointcutType {
-		Beans, Within
+		Beans, Within, Expression, Annotation
 	}
 
 	/**
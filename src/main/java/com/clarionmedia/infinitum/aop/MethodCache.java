@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop;
+
+/**
+ * <p> A named cache of method results used for cache abstraction. Implementations must be safe to use from multiple
+ * threads without external locking. Neither keys nor values may be {@code null}. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+public interface MethodCache {
+
+    /**
+     * Returns the name of the cache.
+     *
+     * @return cache name
+     */
+    String getName();
+
+    /**
+     * Returns the value cached for the given key.
+     *
+     * @param key the key to retrieve the value for
+     * @return cached value or {@code null} if the key isn't cached
+     */
+    Object get(Object key);
+
+    /**
+     * Caches the given value for the given key, replacing any value already cached for it.
+     *
+     * @param key   the key to cache the value for
+     * @param value the value to cache
+     */
+    void put(Object key, Object value);
+
+    /**
+     * Caches the given value for the given key unless a value is already cached for it.
+     *
+     * @param key   the key to cache the value for
+     * @param value the value to cache
+     * @return the value already cached for the key or {@code null} if the given value was cached
+     */
+    Object putIfAbsent(Object key, Object value);
+
+    /**
+     * Removes the value cached for the given key.
+     *
+     * @param key the key to remove
+     */
+    void remove(Object key);
+
+    /**
+     * Removes every value from the cache.
+     */
+    void clear();
+
+    /**
+     * Returns the number of values in the cache.
+     *
+     * @return cache size
+     */
+    int size();
+
+    /**
+     * Receives the values a cache evicts to stay within its capacity. Values which are removed, replaced or cleared
+     * are not reported.
+     */
+    interface EvictionListener {
+
+        /**
+         * Called when the given value has been evicted. Caches call the listener after releasing any locks of their
+         * own, so the listener may use the cache.
+         *
+         * @param key   the key of the evicted value
+         * @param value the evicted value
+         */
+        void onEviction(Object key, Object value);
+
+    }
+
+}
@@ -16,6 +16,9 @@
 
 package com.clarionmedia.infinitum.aop;
 
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Queue;
 
@@ -26,6 +29,10 @@ import com.clarionmedia.infinitum.internal.Preconditions;
  * Contains a set of {@link JoinPoint} instances and a {@link Class} which the
  * {@code JoinPoints} belong to.
  * </p>
+ * <p>
+ * {@code JoinPoints} are ordered by precedence. {@code JoinPoints} with the
+ * same precedence retain the order in which they were added.
+ * </p>
  * 
  * @author Tyler Treat
  * @version 1.0 07/13/12
@@ -36,6 +43,8 @@ public class Pointcut {
 	private static final int INITIAL_QUEUE_SIZE = 11;
 
 	private Queue<JoinPoint> mJoinPoints;
+	private Map<JoinPoint, Long> mSequence;
+	private long mNextSequence;
 	private String mBeanName;
 	private Class<?> mClass;
 
@@ -50,7 +59,8 @@ public class Pointcut {
 	public Pointcut(String beanName, Class<?> clazz) {
 		Preconditions.checkNotNull(beanName);
 		Preconditions.checkNotNull(clazz);
-		mJoinPoints = new PriorityQueue<JoinPoint>(INITIAL_QUEUE_SIZE, new JoinPoint.JoinPointComparator());
+		mSequence = new IdentityHashMap<JoinPoint, Long>();
+		mJoinPoints = new PriorityQueue<JoinPoint>(INITIAL_QUEUE_SIZE, new InsertionOrderComparator());
 		mClass = clazz;
 		mBeanName = beanName;
 	}
@@ -109,6 +119,7 @@ public class Pointcut {
 	 *            the {@code JoinPoint} to add
 	 */
 	public void addJoinPoint(JoinPoint joinPoint) {
+		mSequence.put(joinPoint, mNextSequence++);
 		mJoinPoints.add(joinPoint);
 	}
 
@@ -121,6 +132,30 @@ public class Pointcut {
 	 */
 	public void removeJoinPoint(JoinPoint joinPoint) {
 		mJoinPoints.remove(joinPoint);
+		mSequence.remove(joinPoint);
+	}
+
+	/**
+	 * {@link Comparator} which orders {@code JoinPoints} by precedence and then
+	 * by the order they were added to the {@code Pointcut}.
+	 */
+	private class InsertionOrderComparator implements Comparator<JoinPoint> {
+
+		private JoinPoint.JoinPointComparator mPrecedence = new JoinPoint.JoinPointComparator();
+
+		@Override
+		public int compare(JoinPoint lhs, JoinPoint rhs) {
+			int result = mPrecedence.compare(lhs, rhs);
+			if (result != 0)
+				return result;
+			return sequence(lhs).compareTo(sequence(rhs));
+		}
+
+		private Long sequence(JoinPoint joinPoint) {
+			Long sequence = mSequence.get(joinPoint);
+			return sequence == null ? Long.valueOf(Long.MAX_VALUE) : sequence;
+		}
+
 	}
 
 }
@@ -25,7 +25,7 @@ import java.util.Collection;
  * </p>
  * 
  * @author Tyler Treat
- * @version 1.0 12/28/12
+ * @version 1.1.1 10/19/26
  * @since 1.0
  */
 public interface PointcutBuilder {
@@ -40,4 +40,28 @@ public interface PointcutBuilder {
 	 */
 	Collection<Pointcut> build(Collection<AspectDefinition> aspects);
 
+	/**
+	 * Builds {@link Pointcut} definitions for beans registered after the last
+	 * call to {@link #build(Collection)}, matching them against the aspects
+	 * from that build. Beans which have already been matched are ignored.
+	 * 
+	 * @param beanNames
+	 *            the names of the newly registered beans
+	 * @return collection of {@code Pointcut}s for the new beans
+	 */
+	Collection<Pointcut> buildIncremental(Collection<String> beanNames);
+
+	/**
+	 * Builds a collection of {@link Pointcut} definitions from the given set of
+	 * {@code AspectDefinition}s as {@link #build(Collection)} would, but
+	 * without retaining the aspects for incremental builds or persisting any
+	 * state. This allows the result of a build to be inspected without
+	 * affecting the {@code PointcutBuilder}.
+	 * 
+	 * @param aspects
+	 *            the {@code AspectDefinition}s to build {@code Pointcut}s for
+	 * @return collection of {@code Pointcut}s
+	 */
+	Collection<Pointcut> preview(Collection<AspectDefinition> aspects);
+
 }
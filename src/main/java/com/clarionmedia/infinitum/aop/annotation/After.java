@@ -16,6 +16,7 @@
 
 package com.clarionmedia.infinitum.aop.annotation;
 
+import java.lang.annotation.Annotation;
 import java.lang.annotation.Documented;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -41,7 +42,9 @@ public @interface After {
 
 	/**
 	 * Declares the beans and, optionally, specific methods which make up a
-	 * pointcut.
+	 * pointcut. Bean and method names may contain {@code *} wildcards, e.g.
+	 * {@code order*.find*(*)}. Values prefixed with {@code !} exclude beans or
+	 * methods, e.g. {@code !*Dao} or {@code !*.toString()}.
 	 * 
 	 * @return array of bean names, which may or may not include specific
 	 *         methods to create a pointcut
@@ -50,12 +53,33 @@ public @interface After {
 
 	/**
 	 * Declares the packages such that any contained type's methods make up a
-	 * pointcut.
+	 * pointcut. Values prefixed with {@code !} exclude packages or methods,
+	 * e.g. {@code !com.foo.internal} or {@code !*.toString()}. If only
+	 * exclusions are given, every other bean is included.
 	 * 
 	 * @return array of package names to create a pointcut
 	 */
 	String[] within() default {};
 
+	/**
+	 * Declares an AspectJ-style pointcut expression, such as
+	 * {@code execution(* com.foo..*Service.find*(..)) && !bean(fooDao)}. The
+	 * expression is compiled once when aspects are woven and only the methods
+	 * it matches are advised.
+	 * 
+	 * @return pointcut expression
+	 */
+	String pointcut() default "";
+
+	/**
+	 * Declares the annotation types such that any bean method annotated with
+	 * one of them makes up a pointcut. Methods without the annotations are
+	 * not advised.
+	 * 
+	 * @return array of annotation types to create a pointcut
+	 */
+	Class<? extends Annotation>[] annotation() default {};
+
 	/**
 	 * Declares the advice precedence. A smaller number indicates a higher
 	 * precedence, while a larger number indicates a lower precedence. The
@@ -22,6 +22,8 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import com.clarionmedia.infinitum.aop.CacheConfiguration.EvictionPolicy;
+
 /**
  * <p>
  * Indicates that the annotated method is eligible for caching, meaning
@@ -30,11 +32,18 @@ import java.lang.annotation.Target;
  * execute the method.
  * </p>
  * <p>
- * The value for this annotation indicates the name of the cache to use.
+ * The value for this annotation indicates the name of the cache to use. The
+ * remaining attributes configure the cache when it's created, so methods
+ * sharing a cache should declare the same settings. Settings in app
+ * configuration, e.g. {@code methodCache.<name>.maxEntries} and
+ * {@code methodCache.<name>.evictionPolicy}, take precedence over them.
+ * Expiry may be configured the same way with
+ * {@code methodCache.<name>.expireAfterWrite} and
+ * {@code methodCache.<name>.expireAfterAccess}.
  * </p>
  * 
  * @author Tyler Treat
- * @version 1.0 12/28/12
+ * @version 1.1.1 10/19/26
  * @since 1.0
  */
 @Documented
@@ -49,4 +58,47 @@ public @interface Cache {
 	 */
 	String value();
 
+	/**
+	 * Declares the maximum number of results the cache holds. A value of
+	 * zero or less uses the default.
+	 * 
+	 * @return maximum entries
+	 */
+	int maxEntries() default 0;
+
+	/**
+	 * Declares the policy the cache uses to evict results once it reaches
+	 * capacity.
+	 * 
+	 * @return {@link EvictionPolicy}
+	 */
+	EvictionPolicy evictionPolicy() default EvictionPolicy.LRU;
+
+	/**
+	 * Declares how long, in seconds, a call waits for a concurrent call with
+	 * the same arguments which is already invoking the method. Once the
+	 * timeout elapses, the waiting call invokes the method itself.
+	 * 
+	 * @return load timeout in seconds
+	 */
+	long loadTimeout() default 30;
+
+	/**
+	 * Declares how long, in seconds, a result is cached after the method
+	 * returns it. A value of zero or less means results don't expire after
+	 * they're cached.
+	 * 
+	 * @return expiry after write in seconds
+	 */
+	long expireAfterWrite() default 0;
+
+	/**
+	 * Declares how long, in seconds, a result is cached after it was last
+	 * returned, either by the method or from the cache. A value of zero or
+	 * less means results don't expire after they're accessed.
+	 * 
+	 * @return expiry after access in seconds
+	 */
+	long expireAfterAccess() default 0;
+
 }
@@ -16,8 +16,10 @@
 
 package com.clarionmedia.infinitum.aop.context;
 
-import java.util.Map;
+import java.util.Collection;
 
+import com.clarionmedia.infinitum.aop.AopStartupMetrics;
+import com.clarionmedia.infinitum.aop.CacheManager;
 import com.clarionmedia.infinitum.context.InfinitumContext;
 import com.clarionmedia.infinitum.di.BeanProvider;
 
@@ -28,7 +30,7 @@ import com.clarionmedia.infinitum.di.BeanProvider;
  * </p>
  *
  * @author Tyler Treat
- * @version 1.0.4 03/13/13
+ * @version 1.1.1 10/19/26
  * @since 1.0
  */
 public interface InfinitumAopContext extends InfinitumContext, BeanProvider {
@@ -41,11 +43,11 @@ public interface InfinitumAopContext extends InfinitumContext, BeanProvider {
     boolean isCacheAbstractionEnabled();
 
     /**
-     * Retrieves the method cache used for cache abstraction.
+     * Retrieves the {@link CacheManager} holding the method caches used for cache abstraction.
      *
-     * @return method cache
+     * @return {@code CacheManager}
      */
-    Map<String, Map<Integer, Object>> getMethodCache();
+    CacheManager getCacheManager();
 
     /**
      * Indicates if the event framework is enabled.
@@ -54,4 +56,27 @@ public interface InfinitumAopContext extends InfinitumContext, BeanProvider {
      */
     boolean isEventsEnabled();
 
+    /**
+     * Indicates if the resolved weaving plan should be persisted and reused on subsequent starts.
+     *
+     * @return {@code true} if enabled, {@code false} if not
+     */
+    boolean isWeavingPlanEnabled();
+
+    /**
+     * Weaves the context's aspects into beans which were registered after the context was post-processed, such as
+     * beans from a dynamically loaded module. Only the given beans are matched against the aspects.
+     *
+     * @param beanNames the names of the newly registered beans
+     */
+    void weaveBeans(Collection<String> beanNames);
+
+    /**
+     * Returns the timings and counts of the context's AOP post-processing phases. If {@link #isDebug()} is enabled,
+     * they are also logged once post-processing completes.
+     *
+     * @return {@link AopStartupMetrics}
+     */
+    AopStartupMetrics getStartupMetrics();
+
 }
@@ -17,10 +17,17 @@
 package com.clarionmedia.infinitum.aop.context.impl;
 
 import android.content.Context;
+import com.clarionmedia.infinitum.aop.AopStartupMetrics;
+import com.clarionmedia.infinitum.aop.AopStartupMetrics.Count;
+import com.clarionmedia.infinitum.aop.AopStartupMetrics.Phase;
 import com.clarionmedia.infinitum.aop.AspectDefinition;
 import com.clarionmedia.infinitum.aop.AspectDefinition.AdviceDefinition;
-import com.clarionmedia.infinitum.aop.AspectDefinition.AdviceDefinition.AdviceQualifier;
 import com.clarionmedia.infinitum.aop.AspectTransformer;
+import com.clarionmedia.infinitum.aop.AspectWeaver;
+import com.clarionmedia.infinitum.aop.CacheConfiguration;
+import com.clarionmedia.infinitum.aop.CacheConfiguration.EvictionPolicy;
+import com.clarionmedia.infinitum.aop.CacheManager;
+import com.clarionmedia.infinitum.aop.CacheProvider;
 import com.clarionmedia.infinitum.aop.JoinPoint;
 import com.clarionmedia.infinitum.aop.JoinPoint.AdviceLocation;
 import com.clarionmedia.infinitum.aop.ProceedingJoinPoint;
@@ -31,6 +38,7 @@ import com.clarionmedia.infinitum.aop.context.InfinitumAopContext;
 import com.clarionmedia.infinitum.aop.impl.*;
 import com.clarionmedia.infinitum.context.InfinitumContext;
 import com.clarionmedia.infinitum.context.RestfulContext;
+import com.clarionmedia.infinitum.context.exception.InfinitumConfigurationException;
 import com.clarionmedia.infinitum.context.impl.XmlApplicationContext;
 import com.clarionmedia.infinitum.context.impl.XmlAspect;
 import com.clarionmedia.infinitum.di.AbstractBeanDefinition;
@@ -40,27 +48,38 @@ import com.clarionmedia.infinitum.di.XmlBean;
 import com.clarionmedia.infinitum.event.AbstractEvent;
 import com.clarionmedia.infinitum.event.EventSubscriber;
 import com.clarionmedia.infinitum.event.annotation.Event;
+import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
 import com.clarionmedia.infinitum.internal.StringUtil;
+import com.clarionmedia.infinitum.logging.Logger;
+import com.clarionmedia.infinitum.logging.impl.SmartLogger;
 import com.clarionmedia.infinitum.reflection.ClassReflector;
 import com.clarionmedia.infinitum.reflection.impl.JavaClassReflector;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <p> Implementation of {@link InfinitumAopContext} which is initialized through XML as a child of an {@link
  * XmlApplicationContext} instance. </p>
  *
  * @author Tyler Treat
- * @version 1.1.0 07/04/13
+ * @version 1.1.1 10/19/26
  * @since 1.0
  */
 public class XmlInfinitumAopContext implements InfinitumAopContext {
 
+    private static final String METHOD_CACHE_PREFIX = "methodCache.";
+
     private XmlApplicationContext mParentContext;
     private List<InfinitumContext> mChildContexts;
-    private Map<String, Map<Integer, Object>> mMethodCache;
+    private CacheManager mCacheManager;
     private ClassReflector mClassReflector;
+    private AspectWeaver mAspectWeaver;
+    private AopStartupMetrics mMetrics;
+    private Logger mLogger;
 
     /**
      * Creates a new {@code XmlInfinitumAopContext} instance as a child of the given {@link XmlApplicationContext}.
@@ -70,18 +89,17 @@ public class XmlInfinitumAopContext implements InfinitumAopContext {
     public XmlInfinitumAopContext(XmlApplicationContext parentContext) {
         mParentContext = parentContext;
         mChildContexts = new ArrayList<InfinitumContext>();
-        mMethodCache = new HashMap<String, Map<Integer, Object>>();
         mClassReflector = new JavaClassReflector();
+        mMetrics = new AopStartupMetrics();
+        mLogger = new SmartLogger(getClass().getSimpleName());
     }
 
     @Override
     public void postProcess(Context context) {
-        // Load aspect data from parent context
-        Set<XmlBean> xmlComponents = mParentContext.getXmlComponents();
-        Set<Class<?>> scannedAspects = getAndRemoveAspects(mParentContext.getScannedComponents());
-
-        // Transform aspects from XML or scanned form to generic definition
-        Set<AspectDefinition> aspects = transformAspects(xmlComponents, scannedAspects);
+        // Transform aspects from XML or scanned form to generic definition, removing scanned aspects from the
+        // parent context's components
+        Set<AspectDefinition> aspects = transformAspects(mParentContext.getXmlComponents(),
+                mParentContext.getScannedComponents());
 
         // Add caching advice for cache abstraction
         if (isCacheAbstractionEnabled())
@@ -92,9 +110,25 @@ public class XmlInfinitumAopContext implements InfinitumAopContext {
             addEventsAdvice(aspects);
 
         // Process aspects
-        new ProxyingAspectWeaver(getBeanFactory(), new GenericPointcutBuilder(this),
-                new DelegatingAdvisedProxyFactory()).weave(context,
-                aspects);
+        mMetrics.increment(Count.ASPECTS, aspects.size());
+        mAspectWeaver = new ProxyingAspectWeaver(getBeanFactory(), new GenericPointcutBuilder(this),
+                new DelegatingAdvisedProxyFactory(mMetrics), mMetrics);
+        mAspectWeaver.weave(context, aspects);
+
+        if (isDebug())
+            mLogger.debug("AOP post-processing completed: " + mMetrics);
+    }
+
+    @Override
+    public void weaveBeans(Collection<String> beanNames) {
+        if (mAspectWeaver == null)
+            throw new InfinitumRuntimeException("Aspects must be woven before beans can be added.");
+        mAspectWeaver.weaveIncremental(getAndroidContext(), beanNames);
+    }
+
+    @Override
+    public AopStartupMetrics getStartupMetrics() {
+        return mMetrics;
     }
 
     @Override
@@ -110,8 +144,11 @@ public class XmlInfinitumAopContext implements InfinitumAopContext {
     }
 
     @Override
-    public Map<String, Map<Integer, Object>> getMethodCache() {
-        return mMethodCache;
+    public synchronized CacheManager getCacheManager() {
+        // Created on first use since app configuration isn't available until the parent context is configured
+        if (mCacheManager == null)
+            mCacheManager = createCacheManager();
+        return mCacheManager;
     }
 
     @Override
@@ -121,6 +158,13 @@ public class XmlInfinitumAopContext implements InfinitumAopContext {
                 && Boolean.parseBoolean(mParentContext.getAppConfig().get("events"));
     }
 
+    @Override
+    public boolean isWeavingPlanEnabled() {
+        Map<String, String> appConfig = mParentContext.getAppConfig();
+        return appConfig != null && appConfig.containsKey("weavingPlan")
+                && Boolean.parseBoolean(mParentContext.getAppConfig().get("weavingPlan"));
+    }
+
     @Override
     public boolean isDebug() {
         return mParentContext.isDebug();
@@ -186,35 +230,123 @@ public class XmlInfinitumAopContext implements InfinitumAopContext {
         mParentContext.subscribeForEvents(subscriber);
     }
 
-    private Set<AspectDefinition> transformAspects(Set<XmlBean> xmlComponents, Set<Class<?>> scannedAspects) {
-        AspectTransformer transformer = new GenericAspectTransformer();
-        Set<AspectDefinition> aspects = new HashSet<AspectDefinition>();
+    // Transforms the XML aspects and the Aspect-annotated scanned components in a single pass across a bounded
+    // pool and removes the aspects from the scanned components. The resulting set is ordered deterministically: XML
+    // aspects in declaration order, followed by scanned aspects ordered by class name.
+    private Set<AspectDefinition> transformAspects(Set<XmlBean> xmlComponents, Collection<Class<?>> scannedComponents) {
+        long start = mMetrics.start();
+        final AspectTransformer transformer = new GenericAspectTransformer();
+        List<Callable<AspectDefinition>> tasks = new ArrayList<Callable<AspectDefinition>>();
 
         // Transform XML aspects
         for (XmlBean component : xmlComponents) {
             if (XmlAspect.class.isAssignableFrom(component.getClass())) {
-                aspects.add(transformer.transform((XmlAspect) component));
+                final XmlAspect aspect = (XmlAspect) component;
+                tasks.add(new Callable<AspectDefinition>() {
+                    @Override
+                    public AspectDefinition call() {
+                        return transformer.transform(aspect);
+                    }
+                });
             }
         }
 
-        // Transform scanned aspects
-        for (Class<?> aspect : scannedAspects)
-            aspects.add(transformer.transform(aspect));
-
+        // Discover scanned aspects, skipping components which aren't aspects. Only the class annotation is checked
+        // here, so metadata is built in the transform tasks and only for aspects.
+        List<Class<?>> scannedAspects = new ArrayList<Class<?>>();
+        for (Class<?> component : scannedComponents) {
+            if (component.isAnnotationPresent(Aspect.class))
+                scannedAspects.add(component);
+        }
+        Collections.sort(scannedAspects, new Comparator<Class<?>>() {
+            @Override
+            public int compare(Class<?> lhs, Class<?> rhs) {
+                return lhs.getName().compareTo(rhs.getName());
+            }
+        });
+        for (final Class<?> component : scannedAspects) {
+            tasks.add(new Callable<AspectDefinition>() {
+                @Override
+                public AspectDefinition call() {
+                    return transformer.transform(component);
+                }
+            });
+        }
+        mMetrics.stop(Phase.ASPECT_DISCOVERY, start);
+
+        // Transform XML and scanned aspects
+        start = mMetrics.start();
+        Set<AspectDefinition> aspects = new LinkedHashSet<AspectDefinition>(ParallelTasks.invokeAll(tasks,
+                "transform aspects"));
+        scannedComponents.removeAll(scannedAspects);
+        mMetrics.stop(Phase.ASPECT_TRANSFORM, start);
         return aspects;
     }
 
-    private Set<Class<?>> getAndRemoveAspects(Collection<Class<?>> components) {
-        Set<Class<?>> aspects = new HashSet<Class<?>>();
-        Iterator<Class<?>> iter = components.iterator();
-        while (iter.hasNext()) {
-            Class<?> component = iter.next();
-            if (component.isAnnotationPresent(Aspect.class)) {
-                aspects.add(component);
-                iter.remove();
+    private CacheManager createCacheManager() {
+        Map<String, String> appConfig = mParentContext.getAppConfig();
+        if (appConfig == null)
+            return new ConcurrentCacheManager();
+        CacheProvider provider = new DefaultCacheProvider();
+        Map<String, CacheConfiguration> configurations = new HashMap<String, CacheConfiguration>();
+        for (Map.Entry<String, String> entry : appConfig.entrySet()) {
+            String key = entry.getKey();
+            boolean isProvider = key.equals("cacheProvider");
+            if (!isProvider && (!key.startsWith(METHOD_CACHE_PREFIX)
+                    || key.lastIndexOf('.') <= METHOD_CACHE_PREFIX.length()))
+                continue;
+            if (entry.getValue() == null)
+                throw new InfinitumConfigurationException("Missing value for '" + key + "'.");
+            String value = entry.getValue().trim();
+            if (isProvider) {
+                provider = createCacheProvider(value);
+                continue;
+            }
+            String cacheName = key.substring(METHOD_CACHE_PREFIX.length(), key.lastIndexOf('.'));
+            String setting = key.substring(key.lastIndexOf('.') + 1);
+            CacheConfiguration configuration = configurations.get(cacheName);
+            if (configuration == null) {
+                configuration = new CacheConfiguration();
+                configurations.put(cacheName, configuration);
+            }
+            try {
+                if (setting.equals("maxEntries"))
+                    configuration.setMaxEntries(Integer.parseInt(value));
+                else if (setting.equals("evictionPolicy"))
+                    configuration.setEvictionPolicy(EvictionPolicy.valueOf(value.toUpperCase(Locale.US)));
+                else if (setting.equals("expireAfterWrite"))
+                    configuration.setExpireAfterWrite(Long.parseLong(value), TimeUnit.SECONDS);
+                else if (setting.equals("expireAfterAccess"))
+                    configuration.setExpireAfterAccess(Long.parseLong(value), TimeUnit.SECONDS);
+                else
+                    throw new InfinitumConfigurationException("Unknown method cache setting '" + key + "'.");
+            } catch (IllegalArgumentException e) {
+                throw new InfinitumConfigurationException("Invalid value '" + value + "' for '" + key + "'.", e);
             }
         }
-        return aspects;
+        return new ConcurrentCacheManager(provider, configurations);
+    }
+
+    private CacheProvider createCacheProvider(String className) {
+        try {
+            Class<?> providerClass = Class.forName(className);
+            if (!CacheProvider.class.isAssignableFrom(providerClass))
+                throw new InfinitumConfigurationException("Cache provider '" + className + "' must implement "
+                        + CacheProvider.class.getName() + ".");
+            return (CacheProvider) providerClass.getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            throw new InfinitumConfigurationException("Cache provider '" + className + "' could not be found.", e);
+        } catch (NoSuchMethodException e) {
+            throw new InfinitumConfigurationException("Cache provider '" + className
+                    + "' must have a no-argument constructor.", e);
+        } catch (InvocationTargetException e) {
+            throw new InfinitumConfigurationException("Cache provider '" + className + "' could not be created.",
+                    e.getCause());
+        } catch (InstantiationException e) {
+            throw new InfinitumConfigurationException("Cache provider '" + className + "' could not be created.", e);
+        } catch (IllegalAccessException e) {
+            throw new InfinitumConfigurationException("Cache provider '" + className + "' could not be created.", e);
+        }
     }
 
     private void addCachingAdvice(Set<AspectDefinition> aspects) {
@@ -226,31 +358,19 @@ public class XmlInfinitumAopContext implements InfinitumAopContext {
         // Create Cache advice
         AdviceDefinition cacheAdvice = new AdviceDefinition();
         cacheAdvice.setType(AdviceLocation.Around);
-        cacheAdvice.setPointcutType("within");
-        cacheAdvice.setPointcutValue(new String[]{"*"});
+        cacheAdvice.setPointcutType("annotation");
+        cacheAdvice.setPointcutValue(new String[]{Cache.class.getName()});
         Method method = mClassReflector.getMethod(CacheAspect.class, "cache", ProceedingJoinPoint.class);
         cacheAdvice.setMethod(method);
-        cacheAdvice.setQualifier(new AdviceQualifier() {
-            @Override
-            public boolean qualifies(Class<?> clazz) {
-                return mClassReflector.containsMethodAnnotation(clazz, Cache.class);
-            }
-        });
         adviceList.add(cacheAdvice);
 
         // Create EvictCache advice
         AdviceDefinition evictCacheAdvice = new AdviceDefinition();
         evictCacheAdvice.setType(AdviceLocation.Before);
-        evictCacheAdvice.setPointcutType("within");
-        evictCacheAdvice.setPointcutValue(new String[]{"*"});
+        evictCacheAdvice.setPointcutType("annotation");
+        evictCacheAdvice.setPointcutValue(new String[]{EvictCache.class.getName()});
         method = mClassReflector.getMethod(CacheAspect.class, "evictCache", JoinPoint.class);
         evictCacheAdvice.setMethod(method);
-        evictCacheAdvice.setQualifier(new AdviceQualifier() {
-            @Override
-            public boolean qualifies(Class<?> clazz) {
-                return mClassReflector.containsMethodAnnotation(clazz, EvictCache.class);
-            }
-        });
         adviceList.add(evictCacheAdvice);
 
         cachingAspect.setAdvice(adviceList);
@@ -266,16 +386,10 @@ public class XmlInfinitumAopContext implements InfinitumAopContext {
         // Create Event advice
         AdviceDefinition eventAdvice = new AdviceDefinition();
         eventAdvice.setType(AdviceLocation.After);
-        eventAdvice.setPointcutType("within");
-        eventAdvice.setPointcutValue(new String[]{"*"});
+        eventAdvice.setPointcutType("annotation");
+        eventAdvice.setPointcutValue(new String[]{Event.class.getName()});
         Method method = mClassReflector.getMethod(EventsAspect.class, "publishEvent", JoinPoint.class);
         eventAdvice.setMethod(method);
-        eventAdvice.setQualifier(new AdviceQualifier() {
-            @Override
-            public boolean qualifies(Class<?> clazz) {
-                return mClassReflector.containsMethodAnnotation(clazz, Event.class);
-            }
-        });
         adviceList.add(eventAdvice);
 
         eventsAspect.setAdvice(adviceList);
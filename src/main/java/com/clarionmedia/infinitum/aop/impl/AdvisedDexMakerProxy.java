@@ -20,12 +20,17 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import android.content.Context;
 
+import com.clarionmedia.infinitum.aop.AopStartupMetrics;
+import com.clarionmedia.infinitum.aop.AopStartupMetrics.Phase;
 import com.clarionmedia.infinitum.aop.JoinPoint;
 import com.clarionmedia.infinitum.aop.Pointcut;
 import com.clarionmedia.infinitum.aop.ProceedingJoinPoint;
+import com.clarionmedia.infinitum.di.AbstractBeanDefinition;
 import com.clarionmedia.infinitum.di.DexMakerProxy;
 import com.clarionmedia.infinitum.internal.Preconditions;
 
@@ -34,9 +39,14 @@ import com.clarionmedia.infinitum.internal.Preconditions;
  * Implementation of {@link DexMakerProxy} that provides AOP advice support for
  * DexMaker-based proxies.
  * </p>
+ * <p>
+ * The proxied target may be bound lazily from an
+ * {@link AbstractBeanDefinition}, in which case the bean is not instantiated
+ * until the proxy is first materialized.
+ * </p>
  * 
  * @author Tyler Treat
- * @version 1.0 07/13/12
+ * @version 1.1.1 10/19/26
  * @since 1.0
  */
 public class AdvisedDexMakerProxy extends DexMakerProxy {
@@ -44,7 +54,11 @@ public class AdvisedDexMakerProxy extends DexMakerProxy {
 	private List<JoinPoint> mBeforeAdvice;
 	private List<JoinPoint> mAfterAdvice;
 	private ProceedingJoinPoint mAroundAdvice;
+	private List<JoinPoint> mJoinPoints;
 	private Pointcut mPointcut;
+	private AbstractBeanDefinition mBeanDefinition;
+	private AopStartupMetrics mMetrics;
+	private ConcurrentMap<Method, MethodAdvice> mMethodAdvice;
 
 	/**
 	 * Creates a new {@code AdvisedDexMakerProxy}.
@@ -63,10 +77,13 @@ public class AdvisedDexMakerProxy extends DexMakerProxy {
 		mPointcut = pointcut;
 		mBeforeAdvice = new ArrayList<JoinPoint>();
 		mAfterAdvice = new ArrayList<JoinPoint>();
+		mJoinPoints = new ArrayList<JoinPoint>();
+		mMethodAdvice = new ConcurrentHashMap<Method, MethodAdvice>();
 		ProceedingJoinPoint next = null;
 		Queue<JoinPoint> joinPoints = pointcut.getJoinPoints();
 		while (joinPoints.size() > 0) {
 			JoinPoint joinPoint = joinPoints.remove();
+			mJoinPoints.add(joinPoint);
 			switch (joinPoint.getLocation()) {
 				case Before :
 					mBeforeAdvice.add(joinPoint);
@@ -83,32 +100,77 @@ public class AdvisedDexMakerProxy extends DexMakerProxy {
 			}
 		}
 		mAroundAdvice = next;
+		if (target != null)
+			bindJoinPoints(target);
+	}
+
+	/**
+	 * Creates a new {@code AdvisedDexMakerProxy} whose target is resolved from
+	 * the given {@link AbstractBeanDefinition} when the proxy is first
+	 * materialized.
+	 * 
+	 * @param context
+	 *            the {@link Context} used to retrieve the DEX bytecode cache
+	 * @param beanDefinition
+	 *            the {@code AbstractBeanDefinition} of the proxied bean
+	 * @param pointcut
+	 *            the {@link Pointcut} to provide advice
+	 */
+	public AdvisedDexMakerProxy(Context context,
+			AbstractBeanDefinition beanDefinition, Pointcut pointcut) {
+		this(context, (Object) null, pointcut);
+		Preconditions.checkNotNull(beanDefinition);
+		mBeanDefinition = beanDefinition;
+	}
+
+	/**
+	 * Sets the {@link AopStartupMetrics} proxy generation is recorded to.
+	 * 
+	 * @param metrics
+	 *            the {@code AopStartupMetrics} to record to
+	 */
+	public void setStartupMetrics(AopStartupMetrics metrics) {
+		mMetrics = metrics;
+	}
+
+	@Override
+	public synchronized Object getProxy() {
+		if (mTarget == null && mBeanDefinition != null)
+			setTarget(mBeanDefinition.getNonProxiedBeanInstance());
+		if (mMetrics == null)
+			return super.getProxy();
+		long start = mMetrics.start();
+		Object proxy = super.getProxy();
+		mMetrics.stop(Phase.PROXY_GENERATION, start);
+		mMetrics.recordProxyClass(proxy.getClass());
+		return proxy;
+	}
+
+	@Override
+	public void setTarget(Object target) {
+		super.setTarget(target);
+		bindJoinPoints(target);
 	}
 
 	@Override
 	public Object invoke(Object proxy, Method method, Object[] args)
 			throws Throwable {
-		for (JoinPoint joinPoint : mBeforeAdvice) {
-			if (applies(joinPoint, method)) {
-				joinPoint.setMethod(method);
-				joinPoint.setArguments(args);
-				joinPoint.invoke();
-			}
+		MethodAdvice advice = getMethodAdvice(method);
+		for (JoinPoint joinPoint : advice.getBeforeAdvice()) {
+			joinPoint.setMethod(method);
+			joinPoint.setArguments(args);
+			joinPoint.invoke();
 		}
 		Object ret;
-		if (mAroundAdvice == null || !applies(mAroundAdvice, method)) {
+		ProceedingJoinPoint around = advice.bindAroundAdvice(args);
+		if (around == null)
 			ret = method.invoke(mTarget, args);
-		} else {
-			mAroundAdvice.setMethod(method);
-			mAroundAdvice.setArguments(args);
-			ret = mAroundAdvice.invoke();
-		}
-		for (JoinPoint joinPoint : mAfterAdvice) {
-			if (applies(joinPoint, method)) {
-				joinPoint.setMethod(method);
-				joinPoint.setArguments(args);
-				joinPoint.invoke();
-			}
+		else
+			ret = around.invoke();
+		for (JoinPoint joinPoint : advice.getAfterAdvice()) {
+			joinPoint.setMethod(method);
+			joinPoint.setArguments(args);
+			joinPoint.invoke();
 		}
 		return ret;
 	}
@@ -124,29 +186,35 @@ public class AdvisedDexMakerProxy extends DexMakerProxy {
 	 * @return {@code true} if it applies, {@code false} if not
 	 */
 	protected boolean applies(JoinPoint joinPoint, Method method) {
-		if (joinPoint.isClassScope())
-			return true;
-		Method joinPointMethod = joinPoint.getMethod();
-		if (joinPointMethod == null)
-			return false;
-		if (!joinPointMethod.getName().equals(method.getName()))
-			return false;
-		String t1 = "";
-		for (Class<?> c : joinPointMethod.getParameterTypes()) {
-			t1 += c.getName() + "/";
-		}
-		String t2 = "";
-		for (Class<?> c : method.getParameterTypes()) {
-			t2 += c.getName() + "/";
+		return MethodAdvice.applies(joinPoint, method);
+	}
+
+	// Resolves the advice for the given Method once and caches it for
+	// subsequent invocations
+	private MethodAdvice getMethodAdvice(Method method) {
+		MethodAdvice advice = mMethodAdvice.get(method);
+		if (advice == null) {
+			advice = MethodAdvice.resolve(method, mBeforeAdvice, mAfterAdvice, mAroundAdvice);
+			mMethodAdvice.putIfAbsent(method, advice);
 		}
-		if (!t1.equals(t2))
-			return false;
-		return true;
+		return advice;
+	}
+	
+	// Binds the proxy's JoinPoints to the given target
+	private void bindJoinPoints(Object target) {
+		for (JoinPoint joinPoint : mJoinPoints)
+			joinPoint.setTarget(target);
 	}
 	
 	@Override
 	public AdvisedDexMakerProxy clone() {
-		return new AdvisedDexMakerProxy(mContext, mTarget, mPointcut);
+		AdvisedDexMakerProxy clone;
+		if (mTarget == null && mBeanDefinition != null)
+			clone = new AdvisedDexMakerProxy(mContext, mBeanDefinition, mPointcut);
+		else
+			clone = new AdvisedDexMakerProxy(mContext, mTarget, mPointcut);
+		clone.setStartupMetrics(mMetrics);
+		return clone;
 	}
 
 }
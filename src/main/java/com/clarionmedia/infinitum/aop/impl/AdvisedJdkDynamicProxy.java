@@ -28,13 +28,15 @@ import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * <p> Implementation of {@link JdkDynamicProxy} that provides AOP advice support for proxies based on the JDK's {@link
  * Proxy}. </p>
  *
  * @author Tyler Treat
- * @version 1.0.5 03/16/13
+ * @version 1.1.1 10/19/26
  * @since 1.0
  */
 public final class AdvisedJdkDynamicProxy extends JdkDynamicProxy {
@@ -43,6 +45,7 @@ public final class AdvisedJdkDynamicProxy extends JdkDynamicProxy {
     private List<JoinPoint> mAfterAdvice;
     private ProceedingJoinPoint mAroundAdvice;
     private Pointcut mPointcut;
+    private ConcurrentMap<Method, MethodAdvice> mMethodAdvice;
 
     /**
      * Creates a new {@code AdvisedJdkDynamicProxy}.
@@ -58,10 +61,12 @@ public final class AdvisedJdkDynamicProxy extends JdkDynamicProxy {
         mPointcut = pointcut;
         mBeforeAdvice = new ArrayList<JoinPoint>();
         mAfterAdvice = new ArrayList<JoinPoint>();
+        mMethodAdvice = new ConcurrentHashMap<Method, MethodAdvice>();
         ProceedingJoinPoint next = null;
         Queue<JoinPoint> joinPoints = pointcut.getJoinPoints();
         while (joinPoints.size() > 0) {
             JoinPoint joinPoint = joinPoints.remove();
+            joinPoint.setTarget(target);
             switch (joinPoint.getLocation()) {
                 case Before:
                     mBeforeAdvice.add(joinPoint);
@@ -84,31 +89,23 @@ public final class AdvisedJdkDynamicProxy extends JdkDynamicProxy {
     @Override
     public Object invoke(Object proxy, Method method, Object[] args)
             throws Throwable {
-        // If it's an interface method, get the implementation
-        if (Modifier.isAbstract(method.getModifiers())) {
-            method = mTarget.getClass().getDeclaredMethod(method.getName(), method.getParameterTypes());
-        }
-        for (JoinPoint joinPoint : mBeforeAdvice) {
-            if (applies(joinPoint, method)) {
-                joinPoint.setMethod(method);
-                joinPoint.setArguments(args);
-                joinPoint.invoke();
-            }
+        MethodAdvice advice = getMethodAdvice(method);
+        method = advice.getMethod();
+        for (JoinPoint joinPoint : advice.getBeforeAdvice()) {
+            joinPoint.setMethod(method);
+            joinPoint.setArguments(args);
+            joinPoint.invoke();
         }
         Object ret;
-        if (mAroundAdvice == null || !applies(mAroundAdvice, method)) {
+        ProceedingJoinPoint around = advice.bindAroundAdvice(args);
+        if (around == null)
             ret = method.invoke(mTarget, args);
-        } else {
-            mAroundAdvice.setMethod(method);
-            mAroundAdvice.setArguments(args);
-            ret = mAroundAdvice.invoke();
-        }
-        for (JoinPoint joinPoint : mAfterAdvice) {
-            if (applies(joinPoint, method)) {
-                joinPoint.setMethod(method);
-                joinPoint.setArguments(args);
-                joinPoint.invoke();
-            }
+        else
+            ret = around.invoke();
+        for (JoinPoint joinPoint : advice.getAfterAdvice()) {
+            joinPoint.setMethod(method);
+            joinPoint.setArguments(args);
+            joinPoint.invoke();
         }
         return ret;
     }
@@ -121,24 +118,21 @@ public final class AdvisedJdkDynamicProxy extends JdkDynamicProxy {
      * @return {@code true} if it applies, {@code false} if not
      */
     protected boolean applies(JoinPoint joinPoint, Method method) {
-        if (joinPoint.isClassScope())
-            return true;
-        Method joinPointMethod = joinPoint.getMethod();
-        if (joinPointMethod == null)
-            return false;
-        if (!joinPointMethod.getName().equals(method.getName()))
-            return false;
-        String t1 = "";
-        for (Class<?> c : joinPointMethod.getParameterTypes()) {
-            t1 += c.getName() + "/";
-        }
-        String t2 = "";
-        for (Class<?> c : method.getParameterTypes()) {
-            t2 += c.getName() + "/";
+        return MethodAdvice.applies(joinPoint, method);
+    }
+
+    // Resolves the implementation and advice for the given Method once and caches it for subsequent invocations
+    private MethodAdvice getMethodAdvice(Method method) throws NoSuchMethodException {
+        MethodAdvice advice = mMethodAdvice.get(method);
+        if (advice == null) {
+            Method implementation = method;
+            // If it's an interface method, get the implementation
+            if (Modifier.isAbstract(method.getModifiers()))
+                implementation = mTarget.getClass().getDeclaredMethod(method.getName(), method.getParameterTypes());
+            advice = MethodAdvice.resolve(implementation, mBeforeAdvice, mAfterAdvice, mAroundAdvice);
+            mMethodAdvice.putIfAbsent(method, advice);
         }
-        if (!t1.equals(t2))
-            return false;
-        return true;
+        return advice;
     }
 
     @Override
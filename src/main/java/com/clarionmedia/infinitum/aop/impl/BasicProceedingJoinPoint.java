@@ -60,7 +60,7 @@ public class BasicProceedingJoinPoint extends AbstractJoinPoint implements Proce
 	 *            the {@code BasicProceedingJoinPoint} to copy
 	 */
 	public BasicProceedingJoinPoint(BasicProceedingJoinPoint joinPoint) {
-		super(joinPoint.mContext, joinPoint.mAdvisor, joinPoint.mAdvice);
+		super(joinPoint);
 		mNext = joinPoint.mNext;
 	}
 
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.di.AbstractBeanDefinition;
+
+import java.util.*;
+
+/**
+ * <p> Index of bean definitions organized as a trie of package segments. A type such as {@code com.foo.bar.Baz} is
+ * stored under the path {@code com -> foo -> bar -> Baz}, which allows {@code within} pointcut values to be resolved in
+ * time proportional to the number of matching beans rather than the number of registered beans. </p>
+ * <p> Matching follows the same semantics as a {@link String#startsWith(String)} comparison against the fully
+ * qualified type name, so {@code com.foo.ba} matches both {@code com.foo.bar.Baz} and {@code com.foo.baz.Qux}. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+public class BeanPackageIndex {
+
+    private Node mRoot;
+    private Set<AbstractBeanDefinition> mBeans;
+
+    /**
+     * Creates a new {@code BeanPackageIndex} containing the given bean definitions.
+     *
+     * @param beans the {@link AbstractBeanDefinition} instances to index
+     */
+    public BeanPackageIndex(Collection<AbstractBeanDefinition> beans) {
+        mRoot = new Node();
+        mBeans = new LinkedHashSet<AbstractBeanDefinition>();
+        for (AbstractBeanDefinition bean : beans)
+            add(bean);
+    }
+
+    /**
+     * Adds the given bean definition to the index. Definitions which have already been indexed or which have no type
+     * are ignored.
+     *
+     * @param bean the {@link AbstractBeanDefinition} to add
+     */
+    public void add(AbstractBeanDefinition bean) {
+        if (bean.getType() == null || !mBeans.add(bean))
+            return;
+        String name = bean.getType().getName();
+        Node node = mRoot;
+        int start = 0;
+        int end;
+        while ((end = name.indexOf('.', start)) != -1) {
+            node = node.child(name.substring(start, end));
+            start = end + 1;
+        }
+        node.child(name.substring(start)).mBeans.add(bean);
+    }
+
+    /**
+     * Returns all indexed bean definitions.
+     *
+     * @return all bean definitions
+     */
+    public Collection<AbstractBeanDefinition> getAll() {
+        return mBeans;
+    }
+
+    /**
+     * Returns the bean definitions whose type name starts with the given prefix.
+     *
+     * @param prefix the package or type prefix to match
+     * @return matching bean definitions
+     */
+    public List<AbstractBeanDefinition> findWithin(String prefix) {
+        List<AbstractBeanDefinition> matches = new ArrayList<AbstractBeanDefinition>();
+        Node node = mRoot;
+        int start = 0;
+        int end;
+        while ((end = prefix.indexOf('.', start)) != -1) {
+            node = node.mChildren.get(prefix.substring(start, end));
+            if (node == null)
+                return matches;
+            start = end + 1;
+        }
+        // The last segment may be partial, so collect every child it's a prefix of
+        String last = prefix.substring(start);
+        for (Map.Entry<String, Node> child : node.mChildren.entrySet()) {
+            if (child.getKey().startsWith(last))
+                child.getValue().collect(matches);
+        }
+        return matches;
+    }
+
+    /**
+     * A single package segment in the trie.
+     */
+    private static class Node {
+
+        private Map<String, Node> mChildren = new HashMap<String, Node>();
+        private List<AbstractBeanDefinition> mBeans = new ArrayList<AbstractBeanDefinition>(1);
+
+        private Node child(String segment) {
+            Node child = mChildren.get(segment);
+            if (child == null) {
+                child = new Node();
+                mChildren.put(segment, child);
+            }
+            return child;
+        }
+
+        private void collect(List<AbstractBeanDefinition> matches) {
+            matches.addAll(mBeans);
+            for (Node child : mChildren.values())
+                child.collect(matches);
+        }
+
+    }
+
+}
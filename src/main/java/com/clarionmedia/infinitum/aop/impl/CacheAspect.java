@@ -17,50 +17,91 @@
 package com.clarionmedia.infinitum.aop.impl;
 
 import java.lang.reflect.Method;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import com.clarionmedia.infinitum.aop.CacheConfiguration;
+import com.clarionmedia.infinitum.aop.CacheManager;
 import com.clarionmedia.infinitum.aop.JoinPoint;
+import com.clarionmedia.infinitum.aop.MethodCache;
 import com.clarionmedia.infinitum.aop.ProceedingJoinPoint;
 import com.clarionmedia.infinitum.aop.annotation.Around;
 import com.clarionmedia.infinitum.aop.annotation.Before;
 import com.clarionmedia.infinitum.aop.annotation.Cache;
 import com.clarionmedia.infinitum.aop.annotation.EvictCache;
-import com.clarionmedia.infinitum.internal.ObjectUtils;
-import com.clarionmedia.infinitum.internal.caching.LruCache;
+import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
 
 /**
  * <p>
  * Aspect containing advice used for cache abstraction.
  * </p>
+ * <p>
+ * Concurrent misses for the same key are coalesced: the first caller invokes
+ * the method while the others wait for its result, up to the cache's
+ * {@link Cache#loadTimeout()}, and receive the same result or exception.
+ * A re-entrant call for the same key on the loading thread invokes the
+ * method directly rather than waiting on its own load.
+ * </p>
  * 
  * @author Tyler Treat
- * @version 1.0 12/28/12
+ * @version 1.1.1 10/19/26
  * @since 1.0
  */
 public class CacheAspect {
 
+	// Cached in place of null results, which caches don't accept
+	private static final Object NULL = new Object();
+
+	private ConcurrentMap<Method, CacheConfiguration> mConfigurations;
+	private ConcurrentMap<CacheKey, Load> mLoads;
+
+	/**
+	 * Creates a new {@code CacheAspect}.
+	 */
+	public CacheAspect() {
+		mConfigurations = new ConcurrentHashMap<Method, CacheConfiguration>();
+		mLoads = new ConcurrentHashMap<CacheKey, Load>();
+	}
+
 	/**
 	 * Retrieves the cached result if available or otherwise invokes the method
 	 * and caches the result.
 	 */
 	@Around
 	private Object cache(ProceedingJoinPoint joinPoint) throws Exception {
-		Cache anno = joinPoint.getMethod().getAnnotation(Cache.class);
+		Cache anno = ClassMetadata.getMethodAnnotation(joinPoint.getMethod(), Cache.class);
 		if (anno == null)
 			return joinPoint.proceed();
-		Map<String, Map<Integer, Object>> methodCache = joinPoint.getContext().getMethodCache();
-		String cacheName = anno.value();
-		Map<Integer, Object> cache = methodCache.get(cacheName);
-		if (cache == null) {
-			cache = new LruCache<Integer, Object>(15);
-			methodCache.put(cacheName, cache);
+		MethodCache cache = joinPoint.getContext().getCacheManager()
+				.getCache(anno.value(), getConfiguration(joinPoint.getMethod(), anno));
+		CacheKey key = CacheKey.forInvocation(joinPoint.getMethod(), joinPoint.getArguments());
+		Object cached = cache.get(key);
+		if (cached != null)
+			return cached == NULL ? null : cached;
+		Load load = new Load(joinPoint, cache, key);
+		Load inFlight = mLoads.putIfAbsent(key, load);
+		if (inFlight == null) {
+			try {
+				load.run();
+			} finally {
+				mLoads.remove(key, load);
+			}
+			return getResult(load);
+		}
+		// Waiting on the load from the thread running it would never finish
+		if (inFlight.mOwner == Thread.currentThread())
+			return joinPoint.proceed();
+		try {
+			return getResult(inFlight, anno.loadTimeout());
+		} catch (TimeoutException e) {
+			// Don't wait on a stalled load indefinitely
+			return joinPoint.proceed();
 		}
-		int key = computeHash(joinPoint);
-		if (cache.containsKey(key))
-			return cache.get(key);
-		Object result = joinPoint.proceed();
-		cache.put(key, result);
-		return result;
 	}
 
 	/**
@@ -68,30 +109,82 @@ public class CacheAspect {
 	 */
 	@Before
 	private void evictCache(JoinPoint joinPoint) {
-		EvictCache anno = joinPoint.getMethod().getAnnotation(EvictCache.class);
+		EvictCache anno = ClassMetadata.getMethodAnnotation(joinPoint.getMethod(), EvictCache.class);
 		if (anno == null)
 			return;
-		Map<String, Map<Integer, Object>> methodCache = joinPoint.getContext().getMethodCache();
+		CacheManager cacheManager = joinPoint.getContext().getCacheManager();
 		String[] cacheNames = anno.value();
 		if (cacheNames[0].equals("") && cacheNames.length == 1) {
-			methodCache.clear();
+			cacheManager.evictAll();
 		} else {
-			for (String cacheName : cacheNames) {
-				Map<Integer, Object> cache = methodCache.get(cacheName);
-				if (cache != null)
-					cache.clear();
-			}
+			for (String cacheName : cacheNames)
+				cacheManager.evict(cacheName);
+		}
+	}
+
+	private Object getResult(FutureTask<Object> load) throws Exception {
+		try {
+			return load.get();
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		}
+	}
+
+	private Object getResult(FutureTask<Object> load, long timeout) throws Exception {
+		try {
+			return load.get(timeout, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			throw unwrap(e);
 		}
 	}
 
-	private int computeHash(JoinPoint joinPoint) {
-		Method method = joinPoint.getMethod();
-		final int PRIME = 7;
-		int hash = 31;
-		hash = PRIME * hash + method.getDeclaringClass().getName().hashCode();
-		hash = PRIME * hash + method.getName().hashCode();
-		hash = PRIME * hash + ObjectUtils.nullSafeHashCode(joinPoint.getArguments());
-		return hash;
+	private Exception unwrap(ExecutionException e) {
+		Throwable cause = e.getCause();
+		if (cause instanceof Exception)
+			return (Exception) cause;
+		if (cause instanceof Error)
+			throw (Error) cause;
+		return new InfinitumRuntimeException("Unable to load cached method result.", cause);
+	}
+
+	private CacheConfiguration getConfiguration(Method method, Cache anno) {
+		CacheConfiguration configuration = mConfigurations.get(method);
+		if (configuration == null) {
+			configuration = new CacheConfiguration();
+			configuration.setMaxEntries(anno.maxEntries());
+			configuration.setEvictionPolicy(anno.evictionPolicy());
+			configuration.setExpireAfterWrite(anno.expireAfterWrite(), TimeUnit.SECONDS);
+			configuration.setExpireAfterAccess(anno.expireAfterAccess(), TimeUnit.SECONDS);
+			mConfigurations.put(method, configuration);
+		}
+		return configuration;
+	}
+
+	/**
+	 * Invokes the method and caches its result, unless a result was cached
+	 * since the caller's miss. The {@link ProceedingJoinPoint} must be bound
+	 * to the caller's invocation, since other calls through the same proxy may
+	 * run while the load is in progress.
+	 */
+	private static class Load extends FutureTask<Object> {
+
+		private final Thread mOwner;
+
+		private Load(final ProceedingJoinPoint joinPoint, final MethodCache cache, final CacheKey key) {
+			super(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					Object cached = cache.get(key);
+					if (cached != null)
+						return cached == NULL ? null : cached;
+					Object result = joinPoint.proceed();
+					cache.put(key, result == null ? NULL : result);
+					return result;
+				}
+			});
+			mOwner = Thread.currentThread();
+		}
+
 	}
 
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.internal.ObjectUtils;
+
+import java.lang.reflect.Method;
+
+/**
+ * <p> Key identifying a cached method result by the method invoked and the arguments it was invoked with. Keys compare
+ * the method and every argument for equality, so distinct invocations never share a cached result even if their
+ * hashes collide. The hash is computed once, as a 64-bit value spreading the method's and arguments' hash codes, and
+ * folded to an {@code int} for {@link #hashCode()}. </p>
+ * <p> Invocations with no arguments or a single argument use specialized keys which hold the argument directly rather
+ * than in an array. Array arguments are compared and hashed by their contents. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+abstract class CacheKey {
+
+    private static final long MULTIPLIER = 0x9e3779b97f4a7c15L;
+
+    protected final Method mMethod;
+    protected final long mHash;
+
+    private CacheKey(Method method, long hash) {
+        mMethod = method;
+        mHash = mix(hash);
+    }
+
+    /**
+     * Creates a key for an invocation of the given method with the given arguments. The arguments array is retained,
+     * not copied, so it must not be modified afterwards.
+     *
+     * @param method    the {@link Method} invoked
+     * @param arguments the invocation's arguments, which may be {@code null} if there are none
+     * @return {@code CacheKey}
+     */
+    static CacheKey forInvocation(Method method, Object[] arguments) {
+        if (arguments == null || arguments.length == 0)
+            return new NoArgumentKey(method);
+        if (arguments.length == 1)
+            return new SingleArgumentKey(method, arguments[0]);
+        return new ArgumentsKey(method, arguments);
+    }
+
+    /**
+     * Returns the 64-bit hash of the key.
+     *
+     * @return hash
+     */
+    long getHash() {
+        return mHash;
+    }
+
+    @Override
+    public final int hashCode() {
+        return (int) (mHash ^ (mHash >>> 32));
+    }
+
+    @Override
+    public final boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null || obj.getClass() != getClass())
+            return false;
+        CacheKey other = (CacheKey) obj;
+        return mHash == other.mHash && (mMethod == other.mMethod || mMethod.equals(other.mMethod))
+                && argumentsEqual(other);
+    }
+
+    /**
+     * Indicates if the arguments of this key equal those of the given key of the same type.
+     *
+     * @param other the key to compare with
+     * @return {@code true} if the arguments are equal, {@code false} if not
+     */
+    protected abstract boolean argumentsEqual(CacheKey other);
+
+    private static long hash(Method method) {
+        return method.hashCode() * 31L + method.getParameterTypes().length;
+    }
+
+    private static long combine(long hash, Object argument) {
+        return hash * MULTIPLIER + ObjectUtils.nullSafeHashCode(argument);
+    }
+
+    // Finalizer of MurmurHash3's 64-bit variant
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static final class NoArgumentKey extends CacheKey {
+
+        private NoArgumentKey(Method method) {
+            super(method, hash(method));
+        }
+
+        @Override
+        protected boolean argumentsEqual(CacheKey other) {
+            return true;
+        }
+
+    }
+
+    private static final class SingleArgumentKey extends CacheKey {
+
+        private final Object mArgument;
+
+        private SingleArgumentKey(Method method, Object argument) {
+            super(method, combine(hash(method), argument));
+            mArgument = argument;
+        }
+
+        @Override
+        protected boolean argumentsEqual(CacheKey other) {
+            return ObjectUtils.nullSafeEquals(mArgument, ((SingleArgumentKey) other).mArgument);
+        }
+
+    }
+
+    private static final class ArgumentsKey extends CacheKey {
+
+        private final Object[] mArguments;
+
+        private ArgumentsKey(Method method, Object[] arguments) {
+            super(method, hash(method, arguments));
+            mArguments = arguments;
+        }
+
+        private static long hash(Method method, Object[] arguments) {
+            long hash = CacheKey.hash(method);
+            for (Object argument : arguments)
+                hash = combine(hash, argument);
+            return hash;
+        }
+
+        @Override
+        protected boolean argumentsEqual(CacheKey other) {
+            Object[] arguments = ((ArgumentsKey) other).mArguments;
+            if (arguments.length != mArguments.length)
+                return false;
+            for (int i = 0; i < mArguments.length; i++) {
+                if (!ObjectUtils.nullSafeEquals(mArguments[i], arguments[i]))
+                    return false;
+            }
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p> Reflective metadata for a single class, holding its methods along with their annotations and parameter
+ * annotations. Metadata is built the first time a class is requested and shared for the rest of the process, so the
+ * aspect transformer, advice qualifiers, pointcut builder and built-in aspects reflect over each class only once.
+ * Instances are immutable and safe to use from multiple threads. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+public final class ClassMetadata {
+
+    private static final ConcurrentMap<Class<?>, ClassMetadata> sMetadata =
+            new ConcurrentHashMap<Class<?>, ClassMetadata>();
+
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    private final Class<?> mType;
+    private final Annotation[] mAnnotations;
+    private final Map<Method, MethodMetadata> mMethods;
+    private final List<Method> mAdvisableMethods;
+
+    /**
+     * Returns the {@code ClassMetadata} for the given class, building it if it hasn't been requested before.
+     *
+     * @param type the class to retrieve metadata for
+     * @return {@code ClassMetadata}
+     */
+    public static ClassMetadata forClass(Class<?> type) {
+        ClassMetadata metadata = sMetadata.get(type);
+        if (metadata != null)
+            return metadata;
+        metadata = new ClassMetadata(type);
+        ClassMetadata existing = sMetadata.putIfAbsent(type, metadata);
+        return existing == null ? metadata : existing;
+    }
+
+    /**
+     * Returns the annotation of the given type present on the given {@link Method}, using the metadata of the
+     * method's declaring class.
+     *
+     * @param method         the {@code Method} to check
+     * @param annotationType the type of annotation to retrieve
+     * @return the annotation or {@code null} if it's not present
+     */
+    public static <A extends Annotation> A getMethodAnnotation(Method method, Class<A> annotationType) {
+        return forClass(method.getDeclaringClass()).getAnnotation(method, annotationType);
+    }
+
+    private ClassMetadata(Class<?> type) {
+        mType = type;
+        mAnnotations = type.getAnnotations();
+        mMethods = new LinkedHashMap<Method, MethodMetadata>();
+        mAdvisableMethods = new ArrayList<Method>();
+        for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+            for (Method method : clazz.getDeclaredMethods())
+                addMethod(method);
+        }
+        for (Method method : type.getMethods()) {
+            addMethod(method);
+            int modifiers = method.getModifiers();
+            if (!Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers) && !method.isSynthetic()
+                    && !method.isBridge())
+                mAdvisableMethods.add(method);
+        }
+    }
+
+    /**
+     * Returns the class this metadata describes.
+     *
+     * @return {@code Class}
+     */
+    public Class<?> getType() {
+        return mType;
+    }
+
+    /**
+     * Returns the class-level annotation of the given type.
+     *
+     * @param annotationType the type of annotation to retrieve
+     * @return the annotation or {@code null} if it's not present
+     */
+    public <A extends Annotation> A getAnnotation(Class<A> annotationType) {
+        return find(mAnnotations, annotationType);
+    }
+
+    /**
+     * Returns the annotation of the given type present on the given {@link Method}.
+     *
+     * @param method         the {@code Method} to check
+     * @param annotationType the type of annotation to retrieve
+     * @return the annotation or {@code null} if it's not present
+     */
+    public <A extends Annotation> A getAnnotation(Method method, Class<A> annotationType) {
+        return find(getAnnotations(method), annotationType);
+    }
+
+    /**
+     * Returns the annotations present on the given {@link Method}.
+     *
+     * @param method the {@code Method} to check
+     * @return method annotations
+     */
+    public Annotation[] getAnnotations(Method method) {
+        MethodMetadata metadata = mMethods.get(method);
+        if (metadata == null)
+            return method.getAnnotations();
+        return metadata.mAnnotations;
+    }
+
+    /**
+     * Returns the parameter annotations of the given {@link Method}.
+     *
+     * @param method the {@code Method} to check
+     * @return parameter annotations, indexed by parameter
+     */
+    public Annotation[][] getParameterAnnotations(Method method) {
+        MethodMetadata metadata = mMethods.get(method);
+        if (metadata == null)
+            return method.getParameterAnnotations();
+        return metadata.mParameterAnnotations;
+    }
+
+    /**
+     * Indicates if any method of the class, including inherited methods, is annotated with the given type.
+     *
+     * @param annotationType the type of annotation to check for
+     * @return {@code true} if there is an annotated method, {@code false} if not
+     */
+    public boolean containsMethodAnnotation(Class<? extends Annotation> annotationType) {
+        for (MethodMetadata metadata : mMethods.values()) {
+            if (find(metadata.mAnnotations, annotationType) != null)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the methods of the class, including inherited methods, which are annotated with the given type.
+     *
+     * @param annotationType the type of annotation to check for
+     * @return annotated methods
+     */
+    public List<Method> getMethodsAnnotatedWith(Class<? extends Annotation> annotationType) {
+        List<Method> methods = new ArrayList<Method>();
+        for (Map.Entry<Method, MethodMetadata> method : mMethods.entrySet()) {
+            if (find(method.getValue().mAnnotations, annotationType) != null)
+                methods.add(method.getKey());
+        }
+        return methods;
+    }
+
+    /**
+     * Returns the public methods of the class which can be advised by a proxy, excluding static, final, synthetic and
+     * bridge methods.
+     *
+     * @return advisable methods
+     */
+    public List<Method> getAdvisableMethods() {
+        return mAdvisableMethods;
+    }
+
+    private void addMethod(Method method) {
+        if (mMethods.containsKey(method))
+            return;
+        Annotation[] annotations = method.getAnnotations();
+        mMethods.put(method, new MethodMetadata(annotations.length == 0 ? NO_ANNOTATIONS : annotations,
+                method.getParameterAnnotations()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <A extends Annotation> A find(Annotation[] annotations, Class<A> annotationType) {
+        for (Annotation annotation : annotations) {
+            if (annotation.annotationType() == annotationType)
+                return (A) annotation;
+        }
+        return null;
+    }
+
+    /**
+     * Annotations of a single method.
+     */
+    private static class MethodMetadata {
+
+        private final Annotation[] mAnnotations;
+        private final Annotation[][] mParameterAnnotations;
+
+        private MethodMetadata(Annotation[] annotations, Annotation[][] parameterAnnotations) {
+            mAnnotations = annotations;
+            mParameterAnnotations = parameterAnnotations;
+        }
+
+    }
+
+}
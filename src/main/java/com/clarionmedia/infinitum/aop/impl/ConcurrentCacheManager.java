@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.aop.CacheConfiguration;
+import com.clarionmedia.infinitum.aop.CacheManager;
+import com.clarionmedia.infinitum.aop.CacheProvider;
+import com.clarionmedia.infinitum.aop.MethodCache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p> Implementation of {@link CacheManager} backed by a {@link ConcurrentMap}. Looking up an existing cache doesn't
+ * lock, and a cache is created with {@link ConcurrentMap#putIfAbsent(Object, Object)} so that threads racing to
+ * create the same cache all receive the one which was registered. </p>
+ * <p> Caches are created by a {@link CacheProvider}, and a {@link CacheConfiguration} may be registered for a cache
+ * name, overriding the configuration the cache is requested with. Caches of configurations which expire values are
+ * decorated with an {@link ExpiringMethodCache}. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+public class ConcurrentCacheManager implements CacheManager {
+
+    private final ConcurrentMap<String, MethodCache> mCaches;
+    private final CacheProvider mProvider;
+    private final Map<String, CacheConfiguration> mConfigurations;
+
+    /**
+     * Creates a new {@code ConcurrentCacheManager} which creates caches with a {@link DefaultCacheProvider}.
+     */
+    public ConcurrentCacheManager() {
+        this(new DefaultCacheProvider(), new HashMap<String, CacheConfiguration>());
+    }
+
+    /**
+     * Creates a new {@code ConcurrentCacheManager}.
+     *
+     * @param provider       the {@link CacheProvider} to create caches with
+     * @param configurations {@link CacheConfiguration}s keyed by the name of the cache they apply to
+     */
+    public ConcurrentCacheManager(CacheProvider provider, Map<String, CacheConfiguration> configurations) {
+        mCaches = new ConcurrentHashMap<String, MethodCache>();
+        mProvider = provider;
+        mConfigurations = new HashMap<String, CacheConfiguration>(configurations);
+    }
+
+    @Override
+    public MethodCache getCache(String name) {
+        return getCache(name, new CacheConfiguration());
+    }
+
+    @Override
+    public MethodCache getCache(String name, CacheConfiguration configuration) {
+        MethodCache cache = mCaches.get(name);
+        if (cache != null)
+            return cache;
+        // May run more than once if threads race to create the cache, but only one cache is registered
+        CacheConfiguration overrides = mConfigurations.get(name);
+        if (overrides != null)
+            configuration = configuration.override(overrides);
+        if (configuration.isExpiring())
+            cache = new ExpiringMethodCache(name, configuration, mProvider);
+        else
+            cache = mProvider.createCache(name, configuration, null);
+        MethodCache existing = mCaches.putIfAbsent(name, cache);
+        return existing == null ? cache : existing;
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(mCaches.keySet());
+    }
+
+    @Override
+    public void evict(String name) {
+        MethodCache cache = mCaches.get(name);
+        if (cache != null)
+            cache.clear();
+    }
+
+    @Override
+    public void evictAll() {
+        for (MethodCache cache : mCaches.values())
+            cache.clear();
+    }
+
+}
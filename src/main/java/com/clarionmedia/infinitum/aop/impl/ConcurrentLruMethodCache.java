@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.aop.MethodCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p> Bounded {@link MethodCache} which evicts its least recently used value once it reaches capacity, designed for
+ * caches hit by many threads at once. Values are held in a {@link ConcurrentHashMap}, so lookups never lock. Instead of
+ * reordering the LRU list on every access, reads are recorded in striped, lossy ring buffers and writes in a queue,
+ * and both are replayed against the list in batches by whichever thread acquires the eviction lock. Readers never wait
+ * for the lock, and writers only try it, so contention is limited to the threads which happen to drain. </p>
+ * <p> A full read buffer drops further reads until it is drained, which only makes the recency order approximate.
+ * Writes are never dropped, but the cache may briefly exceed its capacity while another thread holds the lock. </p>
+ * <p> Evicted values are reported to an optional {@link MethodCache.EvictionListener} by the thread which evicted
+ * them, once it has released the lock. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+public class ConcurrentLruMethodCache implements MethodCache {
+
+    private static final int READ_BUFFER_SIZE = 16;
+    private static final int READ_BUFFER_STRIPES =
+            Integer.highestOneBit(Math.max(Runtime.getRuntime().availableProcessors(), 1) * 2 - 1) << 1;
+
+    private final String mName;
+    private final int mCapacity;
+    private final ConcurrentMap<Object, Node> mData;
+    private final AtomicReferenceArray<Node>[] mReadBuffers;
+    private final AtomicInteger[] mReadCounts;
+    private final Queue<Node> mWriteBuffer;
+    private final ReentrantLock mEvictionLock;
+    private final EvictionListener mListener;
+
+    // Access-ordered list of linked nodes from least to most recently used, guarded by the eviction lock
+    private final Node mHead;
+    private int mSize;
+
+    /**
+     * Creates a new {@code ConcurrentLruMethodCache}.
+     *
+     * @param name     the name of the cache
+     * @param capacity the maximum number of values to cache
+     */
+    public ConcurrentLruMethodCache(String name, int capacity) {
+        this(name, capacity, null);
+    }
+
+    /**
+     * Creates a new {@code ConcurrentLruMethodCache} which reports the values it evicts.
+     *
+     * @param name     the name of the cache
+     * @param capacity the maximum number of values to cache
+     * @param listener the {@link MethodCache.EvictionListener} to notify of evicted values, or {@code null}
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ConcurrentLruMethodCache(String name, int capacity, EvictionListener listener) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Cache capacity must be positive.");
+        mName = name;
+        mCapacity = capacity;
+        mData = new ConcurrentHashMap<Object, Node>();
+        mReadBuffers = new AtomicReferenceArray[READ_BUFFER_STRIPES];
+        mReadCounts = new AtomicInteger[READ_BUFFER_STRIPES];
+        for (int i = 0; i < READ_BUFFER_STRIPES; i++) {
+            mReadBuffers[i] = new AtomicReferenceArray<Node>(READ_BUFFER_SIZE);
+            mReadCounts[i] = new AtomicInteger();
+        }
+        mWriteBuffer = new ConcurrentLinkedQueue<Node>();
+        mEvictionLock = new ReentrantLock();
+        mListener = listener;
+        mHead = new Node(null, null);
+        mHead.mPrev = mHead;
+        mHead.mNext = mHead;
+    }
+
+    @Override
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public Object get(Object key) {
+        Node node = mData.get(key);
+        if (node == null)
+            return null;
+        recordRead(node);
+        return node.mValue;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        while (true) {
+            Node node = mData.get(key);
+            if (node == null) {
+                node = new Node(key, value);
+                Node existing = mData.putIfAbsent(key, node);
+                if (existing == null) {
+                    recordWrite(node);
+                    return;
+                }
+                node = existing;
+            }
+            node.mValue = value;
+            // Retry if the node was evicted or removed before the value was written to it
+            if (!node.mRemoved) {
+                recordRead(node);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public Object putIfAbsent(Object key, Object value) {
+        Node node = mData.get(key);
+        if (node == null) {
+            node = new Node(key, value);
+            Node existing = mData.putIfAbsent(key, node);
+            if (existing == null) {
+                recordWrite(node);
+                return null;
+            }
+            node = existing;
+        }
+        recordRead(node);
+        return node.mValue;
+    }
+
+    @Override
+    public void remove(Object key) {
+        Node node = mData.remove(key);
+        if (node != null) {
+            node.mRemoved = true;
+            recordWrite(node);
+        }
+    }
+
+    @Override
+    public void clear() {
+        mEvictionLock.lock();
+        try {
+            for (Object key : mData.keySet()) {
+                Node node = mData.remove(key);
+                if (node != null) {
+                    node.mRemoved = true;
+                    mWriteBuffer.add(node);
+                }
+            }
+            drainBuffers();
+        } finally {
+            mEvictionLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return mData.size();
+    }
+
+    private void recordRead(Node node) {
+        int stripe = (int) Thread.currentThread().getId() & (READ_BUFFER_STRIPES - 1);
+        int slot = mReadCounts[stripe].getAndIncrement();
+        if (slot < READ_BUFFER_SIZE)
+            mReadBuffers[stripe].set(slot, node);
+        if (slot >= READ_BUFFER_SIZE - 1)
+            tryDrain();
+    }
+
+    private void recordWrite(Node node) {
+        mWriteBuffer.add(node);
+        tryDrain();
+    }
+
+    private void tryDrain() {
+        // Re-check after unlocking, since a write may be queued after the final drain but before the unlock
+        while (mEvictionLock.tryLock()) {
+            List<Node> evicted;
+            try {
+                evicted = drainBuffers();
+            } finally {
+                mEvictionLock.unlock();
+            }
+            if (evicted != null) {
+                for (Node node : evicted)
+                    mListener.onEviction(node.mKey, node.mValue);
+            }
+            if (mWriteBuffer.isEmpty())
+                return;
+        }
+    }
+
+    // Returns the evicted nodes if there is a listener to notify of them
+    private List<Node> drainBuffers() {
+        for (int i = 0; i < READ_BUFFER_STRIPES; i++) {
+            AtomicReferenceArray<Node> buffer = mReadBuffers[i];
+            int count = Math.min(mReadCounts[i].get(), READ_BUFFER_SIZE);
+            for (int j = 0; j < count; j++) {
+                Node node = buffer.getAndSet(j, null);
+                if (node != null && node.isLinked())
+                    moveToTail(node);
+            }
+            mReadCounts[i].set(0);
+        }
+        Node node;
+        while ((node = mWriteBuffer.poll()) != null) {
+            if (node.mRemoved) {
+                if (node.isLinked()) {
+                    unlink(node);
+                    mSize--;
+                }
+            } else if (!node.isLinked()) {
+                linkLast(node);
+                mSize++;
+            }
+        }
+        List<Node> evicted = null;
+        while (mSize > mCapacity) {
+            Node eldest = mHead.mNext;
+            unlink(eldest);
+            mSize--;
+            eldest.mRemoved = true;
+            mData.remove(eldest.mKey, eldest);
+            if (mListener != null) {
+                if (evicted == null)
+                    evicted = new ArrayList<Node>();
+                evicted.add(eldest);
+            }
+        }
+        return evicted;
+    }
+
+    private void moveToTail(Node node) {
+        unlink(node);
+        linkLast(node);
+    }
+
+    private void linkLast(Node node) {
+        node.mPrev = mHead.mPrev;
+        node.mNext = mHead;
+        mHead.mPrev.mNext = node;
+        mHead.mPrev = node;
+    }
+
+    private void unlink(Node node) {
+        node.mPrev.mNext = node.mNext;
+        node.mNext.mPrev = node.mPrev;
+        node.mPrev = null;
+        node.mNext = null;
+    }
+
+    private static class Node {
+
+        private final Object mKey;
+        private volatile Object mValue;
+        private volatile boolean mRemoved;
+        private Node mPrev;
+        private Node mNext;
+
+        private Node(Object key, Object value) {
+            mKey = key;
+            mValue = value;
+        }
+
+        private boolean isLinked() {
+            return mPrev != null;
+        }
+
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.aop.CacheConfiguration;
+import com.clarionmedia.infinitum.aop.CacheProvider;
+import com.clarionmedia.infinitum.aop.MethodCache;
+
+/**
+ * <p> Implementation of {@link CacheProvider} used when no provider is configured. It creates a cache of the type
+ * matching the configured {@link CacheConfiguration.EvictionPolicy}. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+public class DefaultCacheProvider implements CacheProvider {
+
+    @Override
+    public MethodCache createCache(String name, CacheConfiguration configuration,
+                                   MethodCache.EvictionListener listener) {
+        switch (configuration.getEvictionPolicy()) {
+            case TINY_LFU:
+                return new TinyLfuMethodCache(name, configuration.getMaxEntries(), listener);
+            case LRU:
+            default:
+                return new ConcurrentLruMethodCache(name, configuration.getMaxEntries(), listener);
+        }
+    }
+
+}
@@ -19,7 +19,9 @@ package com.clarionmedia.infinitum.aop.impl;
 import android.content.Context;
 
 import com.clarionmedia.infinitum.aop.AdvisedProxyFactory;
+import com.clarionmedia.infinitum.aop.AopStartupMetrics;
 import com.clarionmedia.infinitum.aop.Pointcut;
+import com.clarionmedia.infinitum.di.AbstractBeanDefinition;
 import com.clarionmedia.infinitum.di.AbstractProxy;
 
 /**
@@ -28,11 +30,29 @@ import com.clarionmedia.infinitum.di.AbstractProxy;
  * {@link AdvisedJdkDynamicProxy} to proxy interfaces. </p>
  *
  * @author Tyler Treat
- * @version 1.1.0.1 07/22/13
+ * @version 1.1.1 10/19/26
  * @since 1.0
  */
 public class DelegatingAdvisedProxyFactory implements AdvisedProxyFactory {
 
+    private AopStartupMetrics mMetrics;
+
+    /**
+     * Constructs a new {@code DelegatingAdvisedProxyFactory} instance.
+     */
+    public DelegatingAdvisedProxyFactory() {
+    }
+
+    /**
+     * Constructs a new {@code DelegatingAdvisedProxyFactory} instance whose lazily materialized proxies record their
+     * generation in the given {@link AopStartupMetrics}.
+     *
+     * @param metrics the {@code AopStartupMetrics} to record to
+     */
+    public DelegatingAdvisedProxyFactory(AopStartupMetrics metrics) {
+        mMetrics = metrics;
+    }
+
     @Override
     public AbstractProxy createProxy(Context context, Object object, Pointcut pointcut) {
         return createProxy(context, object, pointcut, false);
@@ -47,4 +67,19 @@ public class DelegatingAdvisedProxyFactory implements AdvisedProxyFactory {
         return new AdvisedDexMakerProxy(context, object, pointcut);
     }
 
+    /**
+     * Creates a new bytecode-instrumented {@link AbstractProxy} for the bean described by the given {@link
+     * AbstractBeanDefinition}. The bean is not instantiated until the proxy is first materialized.
+     *
+     * @param context        the {@link Context} used to retrieve the DEX bytecode cache
+     * @param beanDefinition the {@code AbstractBeanDefinition} of the bean to proxy
+     * @param pointcut       the {@link Pointcut} containing advice
+     * @return {@code AbstractProxy}
+     */
+    public AbstractProxy createLazyProxy(Context context, AbstractBeanDefinition beanDefinition, Pointcut pointcut) {
+        AdvisedDexMakerProxy proxy = new AdvisedDexMakerProxy(context, beanDefinition, pointcut);
+        proxy.setStartupMetrics(mMetrics);
+        return proxy;
+    }
+
 }
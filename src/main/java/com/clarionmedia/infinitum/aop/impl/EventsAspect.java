@@ -23,6 +23,7 @@ import com.clarionmedia.infinitum.event.annotation.EventPayload;
 import com.clarionmedia.infinitum.event.impl.FrameworkEvent;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -42,16 +43,18 @@ public class EventsAspect {
      */
     @After
     public void publishEvent(JoinPoint joinPoint) {
-        Event anno = joinPoint.getMethod().getAnnotation(Event.class);
+        Method method = joinPoint.getMethod();
+        ClassMetadata metadata = ClassMetadata.forClass(method.getDeclaringClass());
+        Event anno = metadata.getAnnotation(method, Event.class);
         if (anno == null)
             return;
         String name = anno.value();
         if (name.equals(""))
-            name = joinPoint.getMethod().getName();
+            name = method.getName();
 
         // Build the event payload
         Map<String, Object> payload = new HashMap<String, Object>();
-        Annotation[][] annos = joinPoint.getMethod().getParameterAnnotations();
+        Annotation[][] annos = metadata.getParameterAnnotations(method);
         Object[] args = joinPoint.getArguments();
         for (int i = 0; i < annos.length; i++) {
             for (Annotation a : annos[i]) {
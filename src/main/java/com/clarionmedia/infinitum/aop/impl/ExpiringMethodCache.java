@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.aop.CacheConfiguration;
+import com.clarionmedia.infinitum.aop.CacheProvider;
+import com.clarionmedia.infinitum.aop.MethodCache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p> {@link MethodCache} decorator which expires values a fixed time after they were written, after they were last
+ * read, or both. Reads compare the value's exact expiry time, so an expired value is never returned. Expired values
+ * which aren't read again are removed from the decorated cache by a {@link TimerWheel}, which is advanced as part of
+ * cache operations rather than by a background thread. Reads only try to advance the wheel once per tick of its
+ * finest level, so the cost of cleanup is amortized across operations. </p>
+ * <p> Writes are serialized with the wheel so that a value which is replaced or removed is descheduled along with it,
+ * and the decorated cache is created with an {@link MethodCache.EvictionListener} which deschedules the values it
+ * evicts, so the wheel doesn't retain values the decorated cache no longer holds. The scheduled value of each key is
+ * tracked alongside the wheel, so this bookkeeping never reads the decorated cache, which would count as an access
+ * to its eviction policy. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+public class ExpiringMethodCache implements MethodCache {
+
+    // Ticks of the timer wheel's finest level are 2^30 nanoseconds
+    private static final int TICK_SHIFT = 30;
+
+    private final MethodCache mCache;
+    private final long mExpireAfterWrite;
+    private final long mExpireAfterAccess;
+    private final ReentrantLock mLock;
+    private final TimerWheel mWheel;
+    private final Map<Object, Entry> mScheduled;
+    private volatile long mTick;
+
+    /**
+     * Creates a new {@code ExpiringMethodCache}, decorating a cache created by the given {@link CacheProvider}.
+     *
+     * @param name          the name of the cache
+     * @param configuration the {@link CacheConfiguration} for the cache, including its expiry durations
+     * @param provider      the {@code CacheProvider} to create the decorated cache with
+     */
+    public ExpiringMethodCache(String name, CacheConfiguration configuration, CacheProvider provider) {
+        if (!configuration.isExpiring())
+            throw new IllegalArgumentException("Cache configuration doesn't expire values.");
+        mExpireAfterWrite = configuration.getExpireAfterWrite(TimeUnit.NANOSECONDS);
+        mExpireAfterAccess = configuration.getExpireAfterAccess(TimeUnit.NANOSECONDS);
+        mLock = new ReentrantLock();
+        mScheduled = new HashMap<Object, Entry>();
+        long now = now();
+        mTick = now >>> TICK_SHIFT;
+        mWheel = new TimerWheel(now, new TimerWheel.Listener() {
+            @Override
+            public void onExpired(TimerWheel.Timer timer) {
+                expire((Entry) timer);
+            }
+        });
+        mCache = provider.createCache(name, configuration, new EvictionListener() {
+            @Override
+            public void onEviction(Object key, Object value) {
+                evicted((Entry) value);
+            }
+        });
+    }
+
+    @Override
+    public String getName() {
+        return mCache.getName();
+    }
+
+    @Override
+    public Object get(Object key) {
+        long now = now();
+        cleanUpIfTicked(now);
+        Entry entry = (Entry) mCache.get(key);
+        if (entry == null)
+            return null;
+        if (entry.isExpired(now)) {
+            removeExpired(entry);
+            return null;
+        }
+        entry.mAccessed = now;
+        return entry.mValue;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        long now = now();
+        Entry entry = new Entry(key, value, now);
+        mLock.lock();
+        try {
+            mCache.put(key, entry);
+            schedule(entry, now);
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    @Override
+    public Object putIfAbsent(Object key, Object value) {
+        long now = now();
+        Entry entry = new Entry(key, value, now);
+        mLock.lock();
+        try {
+            Entry existing = (Entry) mCache.putIfAbsent(key, entry);
+            if (existing != null && !existing.isExpired(now)) {
+                existing.mAccessed = now;
+                cleanUpIfTicked(now);
+                return existing.mValue;
+            }
+            if (existing != null) {
+                mCache.put(key, entry);
+                mWheel.deschedule(existing);
+            }
+            schedule(entry, now);
+            return null;
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(Object key) {
+        mLock.lock();
+        try {
+            mCache.remove(key);
+            Entry removed = mScheduled.remove(key);
+            if (removed != null)
+                mWheel.deschedule(removed);
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        mLock.lock();
+        try {
+            mCache.clear();
+            mWheel.clear();
+            mScheduled.clear();
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return mCache.size();
+    }
+
+    /**
+     * Returns the number of values scheduled to expire.
+     *
+     * @return scheduled value count
+     */
+    int getScheduledCount() {
+        mLock.lock();
+        try {
+            return mWheel.size();
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the current time.
+     *
+     * @return time in nanoseconds
+     */
+    protected long now() {
+        return System.nanoTime();
+    }
+
+    // Schedules the entry in place of the key's previously scheduled entry. Called with the lock held.
+    private void schedule(Entry entry, long now) {
+        Entry replaced = mScheduled.put(entry.mKey, entry);
+        if (replaced != null)
+            mWheel.deschedule(replaced);
+        mWheel.advance(now);
+        mTick = now >>> TICK_SHIFT;
+        mWheel.schedule(entry, entry.getExpiry());
+    }
+
+    private void cleanUpIfTicked(long now) {
+        long tick = now >>> TICK_SHIFT;
+        if (tick == mTick || !mLock.tryLock())
+            return;
+        try {
+            mWheel.advance(now);
+            mTick = tick;
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    // Called by the wheel with the lock held
+    private void expire(Entry entry) {
+        long expiry = entry.getExpiry();
+        if (expiry - mWheel.getTime() > 0) {
+            // Read since it was scheduled, so it expires later than the wheel assumed
+            mWheel.schedule(entry, expiry);
+        } else if (mScheduled.get(entry.mKey) == entry) {
+            mScheduled.remove(entry.mKey);
+            mCache.remove(entry.mKey);
+        }
+    }
+
+    private void evicted(Entry entry) {
+        mLock.lock();
+        try {
+            // The key may have been written again before the eviction was reported
+            if (mScheduled.get(entry.mKey) == entry) {
+                mScheduled.remove(entry.mKey);
+                mWheel.deschedule(entry);
+            }
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    private void removeExpired(Entry entry) {
+        mLock.lock();
+        try {
+            // The entry was just read from the decorated cache, so it's only left there if the key has been written
+            // since
+            Entry scheduled = mScheduled.get(entry.mKey);
+            if (scheduled == null || scheduled == entry) {
+                mScheduled.remove(entry.mKey);
+                mCache.remove(entry.mKey);
+            }
+            mWheel.deschedule(entry);
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    private class Entry extends TimerWheel.Timer {
+
+        private final Object mKey;
+        private final Object mValue;
+        private final long mWritten;
+        private volatile long mAccessed;
+
+        private Entry(Object key, Object value, long now) {
+            mKey = key;
+            mValue = value;
+            mWritten = now;
+            mAccessed = now;
+        }
+
+        // Durations are capped by CacheConfiguration, so expiry times are compared by their difference, which
+        // can't overflow even if a sum wraps around
+        private long getExpiry() {
+            if (mExpireAfterAccess == 0)
+                return mWritten + mExpireAfterWrite;
+            long expiry = mAccessed + mExpireAfterAccess;
+            if (mExpireAfterWrite > 0 && mWritten + mExpireAfterWrite - expiry < 0)
+                return mWritten + mExpireAfterWrite;
+            return expiry;
+        }
+
+        private boolean isExpired(long now) {
+            return getExpiry() - now <= 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+/**
+ * <p> Count-min sketch estimating how often keys have been accessed, used as the admission filter of {@link
+ * TinyLfuMethodCache}. Each key maps to one 4-bit counter in each of four rows, counters saturate at 15, and the
+ * estimate is the smallest of a key's counters. Counters are packed sixteen to a {@code long}, so the sketch costs 8
+ * bytes per cache entry regardless of how many distinct keys are seen. </p>
+ * <p> Once the number of recorded accesses reaches ten times the cache's capacity, every counter is halved so that
+ * the sketch ages out keys which were popular in the past but no longer are. Instances are not thread-safe. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] mTable;
+    private final int mMask;
+    private final int mSampleSize;
+    private int mAdditions;
+
+    /**
+     * Creates a new {@code FrequencySketch} sized for a cache of the given capacity.
+     *
+     * @param capacity the maximum number of entries of the cache
+     */
+    FrequencySketch(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        mTable = new long[size];
+        mMask = size - 1;
+        mSampleSize = Math.max(capacity, 1) * 10;
+    }
+
+    /**
+     * Returns the estimated number of times the given key has been accessed, at most 15.
+     *
+     * @param key the key to estimate
+     * @return estimated frequency
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long index = indexOf(hash, row);
+            int count = (int) ((mTable[(int) (index >>> 32)] >>> (int) index) & MAX_COUNT);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Records an access of the given key, aging the sketch if the sample size has been reached.
+     *
+     * @param key the key accessed
+     */
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long index = indexOf(hash, row);
+            int slot = (int) (index >>> 32);
+            int offset = (int) index;
+            if (((mTable[slot] >>> offset) & MAX_COUNT) < MAX_COUNT) {
+                mTable[slot] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++mAdditions >= mSampleSize)
+            reset();
+    }
+
+    private void reset() {
+        for (int i = 0; i < mTable.length; i++)
+            mTable[i] = (mTable[i] >>> 1) & RESET_MASK;
+        mAdditions >>>= 1;
+    }
+
+    // Packs the table slot into the upper 32 bits and the counter's bit offset into the lower 32 bits
+    private long indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        int slot = (int) h & mMask;
+        int offset = (int) ((h >>> 40) & 15) << 2;
+        return ((long) slot << 32) | offset;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+
+}
@@ -16,6 +16,7 @@
 
 package com.clarionmedia.infinitum.aop.impl;
 
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
@@ -56,18 +57,19 @@ public class GenericAspectTransformer implements AspectTransformer {
 
 	@Override
 	public AspectDefinition transform(Class<?> aspect) {
-		if (!aspect.isAnnotationPresent(Aspect.class))
+		ClassMetadata metadata = ClassMetadata.forClass(aspect);
+		Aspect anno = metadata.getAnnotation(Aspect.class);
+		if (anno == null)
 			throw new IllegalArgumentException("Must be Aspect-annotated class.");
 		AspectDefinition ret = new AspectDefinition();
 		ret.setType(aspect);
-		Aspect anno = aspect.getAnnotation(Aspect.class);
 		String name = anno.value() == "" ? StringUtil.toCamelCase(aspect.getSimpleName()) : anno.value();
 		ret.setName(name);
 		List<AdviceDefinition> adviceList = new ArrayList<AdviceDefinition>();
-		List<Method> before = mClassReflector.getAllMethodsAnnotatedWith(aspect, Before.class);
+		List<Method> before = metadata.getMethodsAnnotatedWith(Before.class);
 		for (Method method : before) {
 			AdviceDefinition advice = new AdviceDefinition();
-			Before beforeAnno = method.getAnnotation(Before.class);
+			Before beforeAnno = metadata.getAnnotation(method, Before.class);
 			advice.setMethod(method);
 			advice.setType(AdviceLocation.Before);
 			advice.setOrder(beforeAnno.order());
@@ -90,11 +92,13 @@ public class GenericAspectTransformer implements AspectTransformer {
 				advice.setPointcutValue(within);
 				adviceList.add(advice);
 			}
+			addExpressionAdvice(adviceList, advice, beforeAnno.pointcut());
+			addAnnotationAdvice(adviceList, advice, beforeAnno.annotation());
 		}
-		List<Method> after = mClassReflector.getAllMethodsAnnotatedWith(aspect, After.class);
+		List<Method> after = metadata.getMethodsAnnotatedWith(After.class);
 		for (Method method : after) {
 			AdviceDefinition advice = new AdviceDefinition();
-			After afterAnno = method.getAnnotation(After.class);
+			After afterAnno = metadata.getAnnotation(method, After.class);
 			advice.setMethod(method);
 			advice.setType(AdviceLocation.After);
 			advice.setOrder(afterAnno.order());
@@ -117,11 +121,13 @@ public class GenericAspectTransformer implements AspectTransformer {
 				advice.setPointcutValue(within);
 				adviceList.add(advice);
 			}
+			addExpressionAdvice(adviceList, advice, afterAnno.pointcut());
+			addAnnotationAdvice(adviceList, advice, afterAnno.annotation());
 		}
-		List<Method> around = mClassReflector.getAllMethodsAnnotatedWith(aspect, Around.class);
+		List<Method> around = metadata.getMethodsAnnotatedWith(Around.class);
 		for (Method method : around) {
 			AdviceDefinition advice = new AdviceDefinition();
-			Around aroundAnno = method.getAnnotation(Around.class);
+			Around aroundAnno = metadata.getAnnotation(method, Around.class);
 			advice.setMethod(method);
 			advice.setType(AdviceLocation.Around);
 			advice.setOrder(aroundAnno.order());
@@ -144,6 +150,8 @@ public class GenericAspectTransformer implements AspectTransformer {
 				advice.setPointcutValue(within);
 				adviceList.add(advice);
 			}
+			addExpressionAdvice(adviceList, advice, aroundAnno.pointcut());
+			addAnnotationAdvice(adviceList, advice, aroundAnno.annotation());
 		}
 		ret.setAdvice(adviceList);
 		return ret;
@@ -171,7 +179,11 @@ public class GenericAspectTransformer implements AspectTransformer {
 			else
 				throw new InfinitumConfigurationException("Invalid advice type '" + type + "' defined in '" + xmlAspect.getId() + "'.");
 			advice.setPointcutType(xmlAdvice.getPointcut());
-			advice.setPointcutValue(xmlAdvice.getSeparatedValues());
+			// Expressions may contain commas, so they aren't separated
+			if (xmlAdvice.getPointcut().equalsIgnoreCase("expression"))
+				advice.setPointcutValue(new String[] { xmlAdvice.getValue() });
+			else
+				advice.setPointcutValue(xmlAdvice.getSeparatedValues());
 			advice.setOrder(xmlAdvice.getOrder());
 			adviceList.add(advice);
 		}
@@ -179,4 +191,28 @@ public class GenericAspectTransformer implements AspectTransformer {
 		return ret;
 	}
 
+	// Adds an expression advice if the annotation declared a pointcut
+	// expression
+	private void addExpressionAdvice(List<AdviceDefinition> adviceList, AdviceDefinition advice, String pointcut) {
+		if (pointcut == null || pointcut.trim().length() == 0)
+			return;
+		AdviceDefinition expressionAdvice = new AdviceDefinition(advice);
+		expressionAdvice.setPointcutType("expression");
+		expressionAdvice.setPointcutValue(new String[] { pointcut });
+		adviceList.add(expressionAdvice);
+	}
+
+	// Adds an annotation advice if the annotation declared annotation types
+	private void addAnnotationAdvice(List<AdviceDefinition> adviceList, AdviceDefinition advice, Class<? extends Annotation>[] annotations) {
+		if (annotations == null || annotations.length == 0)
+			return;
+		String[] names = new String[annotations.length];
+		for (int i = 0; i < annotations.length; i++)
+			names[i] = annotations[i].getName();
+		AdviceDefinition annotationAdvice = new AdviceDefinition(advice);
+		annotationAdvice.setPointcutType("annotation");
+		annotationAdvice.setPointcutValue(names);
+		adviceList.add(annotationAdvice);
+	}
+
 }
@@ -16,14 +16,31 @@
 
 package com.clarionmedia.infinitum.aop.impl;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager.NameNotFoundException;
 
 import com.clarionmedia.infinitum.aop.AspectDefinition;
 import com.clarionmedia.infinitum.aop.AspectDefinition.AdviceDefinition;
+import com.clarionmedia.infinitum.aop.AspectDefinition.AdviceDefinition.AdviceQualifier;
 import com.clarionmedia.infinitum.aop.JoinPoint;
 import com.clarionmedia.infinitum.aop.JoinPoint.AdviceLocation;
 import com.clarionmedia.infinitum.aop.Pointcut;
@@ -32,24 +49,54 @@ import com.clarionmedia.infinitum.aop.context.InfinitumAopContext;
 import com.clarionmedia.infinitum.di.AbstractBeanDefinition;
 import com.clarionmedia.infinitum.di.BeanFactory;
 import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
-import com.clarionmedia.infinitum.internal.CollectionUtil;
+import com.clarionmedia.infinitum.logging.Logger;
+import com.clarionmedia.infinitum.logging.impl.SmartLogger;
 import com.clarionmedia.infinitum.reflection.ClassReflector;
 import com.clarionmedia.infinitum.reflection.impl.JavaClassReflector;
 
 /**
  * <p>
- * Basic implementation of {@link PointcutBuilder}.
+ * Basic implementation of {@link PointcutBuilder}. Advice definitions are
+ * matched against the registered beans in parallel, one task per advice, and
+ * the resulting {@link JoinPoint} instances are merged into their
+ * {@link Pointcut}s in a deterministic order: by advice precedence, then by
+ * aspect name and advice method. Expression pointcuts are evaluated as
+ * bitsets over a {@link MethodSpace} numbering every advisable method of the
+ * matched beans.
+ * </p>
+ * <p>
+ * Matching runs on the pool shared through {@link ParallelTasks}, or inline
+ * when there is little advice to match. Since advice may be matched on any
+ * thread, {@link AdviceQualifier}s must be thread-safe.
+ * </p>
+ * <p>
+ * The compiled advice and bean indexes are retained after a build, so beans
+ * registered later can be matched through {@link #buildIncremental(Collection)}
+ * without rebuilding every {@code Pointcut}.
+ * </p>
+ * <p>
+ * If weaving plans are enabled, the resolved {@code Pointcuts} are persisted
+ * as a {@link WeavingPlan} keyed by a fingerprint of the application version
+ * and APK, advice and beans. Later builds with the same fingerprint apply the
+ * plan instead of matching advice against every bean. The APK's size and
+ * modification time are included so that a rebuilt APK which keeps its
+ * version, as during development, doesn't reuse a stale plan.
  * </p>
  * 
  * @author Tyler Treat
- * @version 1.0 12/28/12
+ * @version 1.1.1 10/19/26
  * @since 1.0
  */
 public class GenericPointcutBuilder implements PointcutBuilder {
 
+	private static final String WEAVING_PLAN_FILE = "infinitum-weaving-plan.bin";
+
 	private ClassReflector mClassReflector;
 	private InfinitumAopContext mContext;
 	private BeanFactory mBeanFactory;
+	private List<CompiledAdvice> mAdvice;
+	private BeanScope mScope;
+	private Logger mLogger;
 
 	/**
 	 * Constructs a new {@code GenericPointcutBuilder} instance.
@@ -61,32 +108,245 @@ public class GenericPointcutBuilder implements PointcutBuilder {
 		mClassReflector = new JavaClassReflector();
 		mContext = context;
 		mBeanFactory = context.getBeanFactory();
+		mLogger = new SmartLogger(getClass().getSimpleName());
 	}
 
 	@Override
 	public Collection<Pointcut> build(Collection<AspectDefinition> aspects) {
-		Map<String, Pointcut> pointcutMap = new HashMap<String, Pointcut>();
+		mAdvice = compile(aspects);
+		mScope = new BeanScope(mBeanFactory.getBeanDefinitions().values(), false);
+		File planFile = getWeavingPlanFile();
+		if (planFile == null)
+			return match(mAdvice, mScope, null);
+		long fingerprint = fingerprint();
+		Collection<Pointcut> pointcuts = applyWeavingPlan(planFile, fingerprint);
+		if (pointcuts != null)
+			return pointcuts;
+		WeavingPlan plan = new WeavingPlan(fingerprint);
+		pointcuts = match(mAdvice, mScope, plan);
+		try {
+			plan.write(planFile);
+		} catch (IOException e) {
+			mLogger.warn("Unable to persist weaving plan", e);
+		}
+		return pointcuts;
+	}
+
+	@Override
+	public Collection<Pointcut> buildIncremental(Collection<String> beanNames) {
+		if (mAdvice == null)
+			throw new InfinitumRuntimeException("Pointcuts must be built before beans can be added incrementally.");
+		List<AbstractBeanDefinition> beans = new ArrayList<AbstractBeanDefinition>();
+		for (String beanName : beanNames) {
+			AbstractBeanDefinition bean = mBeanFactory.getBeanDefinition(beanName);
+			if (bean != null && !mScope.contains(bean))
+				beans.add(bean);
+		}
+		if (beans.isEmpty())
+			return Collections.emptyList();
+		Collection<Pointcut> pointcuts = match(mAdvice, new BeanScope(beans, true), null);
+		mScope.addAll(beans);
+		return pointcuts;
+	}
+
+	@Override
+	public Collection<Pointcut> preview(Collection<AspectDefinition> aspects) {
+		// Weaving plans are neither applied nor written, since the plan's
+		// fingerprint describes the advice of the last build
+		return match(compile(aspects), new BeanScope(mBeanFactory.getBeanDefinitions().values(), false), null);
+	}
+
+	// Compiles each advice, sorted into the order its JoinPoints will be
+	// merged
+	private List<CompiledAdvice> compile(Collection<AspectDefinition> aspects) {
+		List<CompiledAdvice> compiled = new ArrayList<CompiledAdvice>();
 		for (AspectDefinition aspect : aspects) {
 			Object advisor = mClassReflector.getClassInstance(aspect.getType());
-			for (AdviceDefinition advice : aspect.getAdvice())
-				processAdvice(advisor, advice, pointcutMap);
+			List<AdviceDefinition> adviceList = aspect.getAdvice();
+			for (int i = 0; i < adviceList.size(); i++)
+				compiled.add(new CompiledAdvice(aspect, advisor, adviceList.get(i), i));
+		}
+		Collections.sort(compiled);
+		return compiled;
+	}
+
+	// Matches the compiled advice against the beans in the given scope and
+	// merges the resulting JoinPoints into Pointcuts, recording them in the
+	// plan if there is one
+	private Collection<Pointcut> match(List<CompiledAdvice> advice, BeanScope scope, WeavingPlan plan) {
+		Map<String, Pointcut> pointcutMap = new HashMap<String, Pointcut>();
+		List<List<JoinPoint>> results = deduplicate(execute(advice, scope));
+		for (int i = 0; i < results.size(); i++) {
+			for (JoinPoint joinPoint : results.get(i)) {
+				putJoinPoint(pointcutMap, joinPoint);
+				if (plan == null)
+					continue;
+				if (joinPoint.isClassScope())
+					plan.addClassScope(joinPoint.getBeanName(), i);
+				else
+					plan.addMethod(joinPoint.getBeanName(), i, joinPoint.getMethod());
+			}
 		}
 		return pointcutMap.values();
 	}
 
-	private void processAdvice(Object advisor, AdviceDefinition advice, Map<String, Pointcut> pointcutMap) {
-		if (advice.getPointcutType().equalsIgnoreCase("beans"))
-			processBeanJoinPoints(advisor, advice, pointcutMap);
-		else if (advice.getPointcutType().equalsIgnoreCase("within"))
-			processWithinJoinPoints(advisor, advice, pointcutMap);
+	// Drops JoinPoints which repeat an earlier JoinPoint for the same advisor,
+	// advice, bean and method, as well as method JoinPoints covered by a
+	// class-scope JoinPoint for the same advisor, advice and bean, so each
+	// advice runs at most once per call
+	private List<List<JoinPoint>> deduplicate(List<List<JoinPoint>> results) {
+		Set<JoinPointKey> classScoped = new HashSet<JoinPointKey>();
+		for (List<JoinPoint> joinPoints : results) {
+			for (JoinPoint joinPoint : joinPoints) {
+				if (joinPoint.isClassScope())
+					classScoped.add(new JoinPointKey(joinPoint, null));
+			}
+		}
+		Set<JoinPointKey> seen = new HashSet<JoinPointKey>();
+		List<List<JoinPoint>> deduplicated = new ArrayList<List<JoinPoint>>(results.size());
+		for (List<JoinPoint> joinPoints : results) {
+			List<JoinPoint> unique = new ArrayList<JoinPoint>(joinPoints.size());
+			for (JoinPoint joinPoint : joinPoints) {
+				Method method = joinPoint.isClassScope() ? null : joinPoint.getMethod();
+				if (method != null && classScoped.contains(new JoinPointKey(joinPoint, null)))
+					continue;
+				if (seen.add(new JoinPointKey(joinPoint, method)))
+					unique.add(joinPoint);
+			}
+			deduplicated.add(unique);
+		}
+		return deduplicated;
+	}
+
+	// Rebuilds the Pointcuts from a persisted plan, or returns null if there
+	// is no plan or it doesn't match the current definitions
+	private Collection<Pointcut> applyWeavingPlan(File planFile, long fingerprint) {
+		WeavingPlan plan;
+		try {
+			plan = WeavingPlan.read(planFile);
+		} catch (IOException e) {
+			mLogger.warn("Unable to read weaving plan", e);
+			return null;
+		}
+		if (plan == null || plan.getFingerprint() != fingerprint)
+			return null;
+		Map<String, Pointcut> pointcutMap = new HashMap<String, Pointcut>();
+		for (Map.Entry<String, List<WeavingPlan.Entry>> bean : plan.getBeans().entrySet()) {
+			String beanName = bean.getKey();
+			AbstractBeanDefinition beanDefinition = mBeanFactory.getBeanDefinition(beanName);
+			if (beanDefinition == null || beanDefinition.getType() == null)
+				return null;
+			List<Method> methods = ClassMetadata.forClass(beanDefinition.getType()).getAdvisableMethods();
+			for (WeavingPlan.Entry entry : bean.getValue()) {
+				if (entry.getAdvice() < 0 || entry.getAdvice() >= mAdvice.size())
+					return null;
+				CompiledAdvice compiled = mAdvice.get(entry.getAdvice());
+				JoinPoint joinPoint = createJoinPoint(compiled.mAdvisor, compiled.mAdvice, beanName);
+				if (entry.isClassScope()) {
+					joinPoint.setClassScope(true);
+				} else {
+					Method method = entry.resolve(methods);
+					if (method == null)
+						return null;
+					joinPoint.setMethod(method);
+				}
+				putJoinPoint(pointcutMap, joinPoint);
+			}
+		}
+		return pointcutMap.values();
+	}
+
+	// Returns the file the weaving plan is persisted to, or null if weaving
+	// plans are disabled
+	private File getWeavingPlanFile() {
+		if (!mContext.isWeavingPlanEnabled())
+			return null;
+		Context context = mContext.getAndroidContext();
+		if (context == null || context.getCacheDir() == null)
+			return null;
+		return new File(context.getCacheDir(), WEAVING_PLAN_FILE);
+	}
+
+	// Fingerprints the application version and APK, the compiled advice and
+	// the registered beans, which together determine the weaving plan
+	private long fingerprint() {
+		long fingerprint = WeavingPlan.fingerprint(0, getApplicationVersion());
+		fingerprint = WeavingPlan.fingerprint(fingerprint, getApplicationPackage());
+		for (CompiledAdvice compiled : mAdvice) {
+			AdviceDefinition advice = compiled.mAdvice;
+			fingerprint = WeavingPlan.fingerprint(fingerprint, compiled.mAspect.getName());
+			fingerprint = WeavingPlan.fingerprint(fingerprint, compiled.mAspect.getType().getName());
+			fingerprint = WeavingPlan.fingerprint(fingerprint, String.valueOf(advice.getMethod()));
+			fingerprint = WeavingPlan.fingerprint(fingerprint, String.valueOf(advice.getType()));
+			fingerprint = WeavingPlan.fingerprint(fingerprint, advice.getPointcutType());
+			fingerprint = WeavingPlan.fingerprint(fingerprint, Arrays.toString(advice.getPointcutValue()));
+			fingerprint = WeavingPlan.fingerprint(fingerprint, String.valueOf(advice.getOrder()));
+		}
+		List<String> beanNames = new ArrayList<String>(mBeanFactory.getBeanDefinitions().keySet());
+		Collections.sort(beanNames);
+		for (String beanName : beanNames) {
+			Class<?> type = mBeanFactory.getBeanDefinitions().get(beanName).getType();
+			fingerprint = WeavingPlan.fingerprint(fingerprint, beanName);
+			fingerprint = WeavingPlan.fingerprint(fingerprint, type == null ? null : type.getName());
+		}
+		return fingerprint;
+	}
+
+	private String getApplicationVersion() {
+		Context context = mContext.getAndroidContext();
+		try {
+			PackageInfo info = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+			return info.versionCode + ":" + info.versionName;
+		} catch (NameNotFoundException e) {
+			return null;
+		}
+	}
+
+	// Identifies the installed APK by its size and modification time
+	private String getApplicationPackage() {
+		ApplicationInfo info = mContext.getAndroidContext().getApplicationInfo();
+		if (info == null || info.sourceDir == null)
+			return null;
+		File apk = new File(info.sourceDir);
+		return apk.length() + ":" + apk.lastModified();
+	}
+
+	// Matches each advice across the shared pool and returns the results in
+	// advice order
+	private List<List<JoinPoint>> execute(List<CompiledAdvice> adviceList, final BeanScope scope) {
+		List<Callable<List<JoinPoint>>> tasks = new ArrayList<Callable<List<JoinPoint>>>(adviceList.size());
+		for (final CompiledAdvice advice : adviceList) {
+			tasks.add(new Callable<List<JoinPoint>>() {
+				@Override
+				public List<JoinPoint> call() {
+					return advice.match(scope);
+				}
+			});
+		}
+		return ParallelTasks.invokeAll(tasks, "build pointcuts");
+	}
+
+	private void processAdvice(CompiledAdvice compiled, BeanScope scope, List<JoinPoint> joinPoints) {
+		String pointcutType = compiled.mAdvice.getPointcutType();
+		if (pointcutType.equalsIgnoreCase("beans"))
+			processBeanJoinPoints(compiled, scope, joinPoints);
+		else if (pointcutType.equalsIgnoreCase("within"))
+			processWithinJoinPoints(compiled, scope, joinPoints);
+		else if (pointcutType.equalsIgnoreCase("expression"))
+			processExpressionJoinPoints(compiled, scope, joinPoints);
+		else if (pointcutType.equalsIgnoreCase("annotation"))
+			processAnnotationJoinPoints(compiled, scope, joinPoints);
 	}
 
 	// Processes JoinPoints specified by the "beans" attribute
-	// e.g. @Before(beans = { "fooBean", "barBean.method(*)" })
-	private void processBeanJoinPoints(Object advisor, AdviceDefinition advice, Map<String, Pointcut> pointcutMap) {
+	// e.g. @Before(beans = { "fooBean", "barBean.method(*)", "*Repository", "!*.toString()" })
+	private void processBeanJoinPoints(CompiledAdvice compiled, BeanScope scope, List<JoinPoint> joinPoints) {
+		Object advisor = compiled.mAdvisor;
+		AdviceDefinition advice = compiled.mAdvice;
+		Exclusions exclusions = compiled.mExclusions;
 		for (String bean : advice.getPointcutValue()) {
 			bean = bean.trim();
-			if (bean.length() == 0)
+			if (bean.length() == 0 || Exclusions.isExclusion(bean))
 				continue;
 			String beanName = bean;
 			boolean isClassScope = false;
@@ -94,56 +354,129 @@ public class GenericPointcutBuilder implements PointcutBuilder {
 				beanName = bean.substring(0, bean.indexOf('.'));
 			else
 				isClassScope = true;
+			// Bean name patterns are matched against the registry below
+			if (beanName.indexOf('*') != -1 || !scope.includes(beanName))
+				continue;
 			Class<?> beanType = mBeanFactory.getBeanType(beanName);
-			if (!advice.qualifies(beanType))
+			if (exclusions.excludes(beanName, beanType) || !advice.qualifies(beanType))
 				continue;
-			Object beanObject = mBeanFactory.loadBean(beanName);
-			JoinPoint joinPoint = advice.getType() == AdviceLocation.Around ? new BasicProceedingJoinPoint(mContext, advisor,
-					advice.getMethod()) : new BasicJoinPoint(mContext, advisor, advice.getMethod(), advice.getType());
-			joinPoint.setBeanName(beanName);
-			joinPoint.setTarget(beanObject);
-			joinPoint.setOrder(advice.getOrder());
 			if (isClassScope) {
-				joinPoint.setClassScope(true);
-				putJoinPoint(pointcutMap, joinPoint);
+				addClassScopeJoinPoint(compiled, beanName, beanType, joinPoints);
 			} else {
 				// It's a specific method or methods matcher
-				processBeanMethodJoinPoint(bean, beanObject, advisor, advice, joinPoint, pointcutMap);
+				JoinPoint joinPoint = createJoinPoint(advisor, advice, beanName);
+				processBeanMethodJoinPoint(bean, beanType, compiled, joinPoint, joinPoints, null, true);
+			}
+		}
+		if (compiled.mBeanPatterns.isEmpty())
+			return;
+		// Match every bean name pattern in a single pass over the registry
+		for (AbstractBeanDefinition bean : scope.mPackageIndex.getAll()) {
+			for (BeanNamePattern pattern : compiled.mBeanPatterns) {
+				if (!pattern.mName.matcher(bean.getName()).matches() || exclusions.excludes(bean.getName(), bean.getType())
+						|| !advice.qualifies(bean.getType()))
+					continue;
+				if (pattern.mClassScope) {
+					addClassScopeJoinPoint(compiled, bean.getName(), bean.getType(), joinPoints);
+				} else {
+					JoinPoint joinPoint = createJoinPoint(advisor, advice, bean.getName());
+					processBeanMethodJoinPoint(pattern.mValue, bean.getType(), compiled, joinPoint, joinPoints, pattern.mMethod, false);
+				}
 			}
 		}
 	}
 
 	// Processes JoinPoints specified by the "within" attribute
-	// e.g. @Around(within = {"com.foo.bar.service", "com.foo.bar.dao"})
-	private void processWithinJoinPoints(Object advisor, AdviceDefinition advice, Map<String, Pointcut> pointcutMap) {
-		for (String pkg : advice.getPointcutValue()) {
+	// e.g. @Around(within = {"com.foo.bar.service", "com.foo.bar.dao", "!com.foo.bar.dao.internal"})
+	private void processWithinJoinPoints(CompiledAdvice compiled, BeanScope scope, List<JoinPoint> joinPoints) {
+		AdviceDefinition advice = compiled.mAdvice;
+		Exclusions exclusions = compiled.mExclusions;
+		// A pointcut consisting only of exclusions applies to every other bean
+		String[] packages = compiled.mExclusionsOnly ? new String[] { "*" } : advice.getPointcutValue();
+		for (String pkg : packages) {
 			pkg = pkg.toLowerCase(Locale.getDefault()).trim();
-			if (pkg.length() == 0)
+			if (pkg.length() == 0 || Exclusions.isExclusion(pkg))
 				continue;
-			boolean all = pkg.equals("*");
-			Map<AbstractBeanDefinition, String> invertedMap = CollectionUtil.invert(mBeanFactory.getBeanDefinitions());
-			for (AbstractBeanDefinition bean : invertedMap.keySet()) {
-				if (all || bean.getType().getName().startsWith(pkg)) {
-					Class<?> beanType = bean.getType();
-					if (!advice.qualifies(beanType))
-						continue;
-					JoinPoint joinPoint = advice.getType() == AdviceLocation.Around ? new BasicProceedingJoinPoint(mContext, advisor,
-							advice.getMethod()) : new BasicJoinPoint(mContext, advisor, advice.getMethod(), advice.getType());
-					joinPoint.setBeanName(bean.getName());
-					joinPoint.setTarget(bean.getNonProxiedBeanInstance());
-					joinPoint.setOrder(advice.getOrder());
-					joinPoint.setClassScope(true);
-					putJoinPoint(pointcutMap, joinPoint);
-				}
+			BeanPackageIndex packageIndex = scope.mPackageIndex;
+			Collection<AbstractBeanDefinition> beans = pkg.equals("*") ? packageIndex.getAll() : packageIndex.findWithin(pkg);
+			for (AbstractBeanDefinition bean : beans) {
+				Class<?> beanType = bean.getType();
+				if (exclusions.excludes(bean.getName(), beanType) || !advice.qualifies(beanType))
+					continue;
+				addClassScopeJoinPoint(compiled, bean.getName(), beanType, joinPoints);
+			}
+		}
+	}
+
+	// Processes JoinPoints specified by the "pointcut" attribute
+	// e.g. @Before(pointcut = "execution(* com.foo..*Service.find*(..))")
+	// The expressions are evaluated as bitsets over the scope's methods and
+	// the JoinPoints are read straight from the selected bits
+	private void processExpressionJoinPoints(CompiledAdvice compiled, BeanScope scope, List<JoinPoint> joinPoints) {
+		Object advisor = compiled.mAdvisor;
+		AdviceDefinition advice = compiled.mAdvice;
+		List<PointcutExpression> expressions = compiled.mExpressions;
+		if (expressions.isEmpty())
+			return;
+		MethodSpace space = scope.getMethodSpace();
+		MethodSpace.Selection selection = null;
+		for (PointcutExpression expression : expressions)
+			selection = selection == null ? expression.select(space) : selection.or(expression.select(space));
+		BitSet always = selection.getAlways();
+		for (int bean = always.nextSetBit(0); bean >= 0; bean = always.nextSetBit(bean + 1)) {
+			AbstractBeanDefinition definition = space.getBean(bean);
+			if (!advice.qualifies(definition.getType()))
+				continue;
+			JoinPoint joinPoint = createJoinPoint(advisor, advice, definition.getName());
+			joinPoint.setClassScope(true);
+			joinPoints.add(joinPoint);
+		}
+		BitSet methods = selection.getMethods();
+		for (int method = methods.nextSetBit(0); method >= 0; method = methods.nextSetBit(method + 1)) {
+			int bean = space.getOwner(method);
+			AbstractBeanDefinition definition = space.getBean(bean);
+			if (always.get(bean) || !advice.qualifies(definition.getType())) {
+				// Skip the rest of the bean's methods
+				method = space.getEnd(bean) - 1;
+				continue;
+			}
+			JoinPoint joinPoint = createJoinPoint(advisor, advice, definition.getName());
+			joinPoint.setMethod(space.getMethod(method));
+			joinPoints.add(joinPoint);
+		}
+	}
+
+	// Processes JoinPoints specified by the "annotation" attribute
+	// e.g. @Before(annotation = Cache.class)
+	private void processAnnotationJoinPoints(CompiledAdvice compiled, BeanScope scope, List<JoinPoint> joinPoints) {
+		Object advisor = compiled.mAdvisor;
+		AdviceDefinition advice = compiled.mAdvice;
+		for (String annotation : advice.getPointcutValue()) {
+			annotation = annotation.trim();
+			if (annotation.length() == 0)
+				continue;
+			for (MethodAnnotationIndex.AnnotatedMethod annotated : scope.getAnnotationIndex().find(annotation)) {
+				AbstractBeanDefinition bean = annotated.getBean();
+				if (!advice.qualifies(bean.getType()))
+					continue;
+				JoinPoint joinPoint = createJoinPoint(advisor, advice, bean.getName());
+				joinPoint.setMethod(annotated.getMethod());
+				joinPoints.add(joinPoint);
 			}
 		}
 	}
 
 	// Processes JoinPoints specified by the "beans" attribute which indicate
 	// methods to advise
-	// e.g. @Before(beans = { "barBean.method(*)" })
-	private void processBeanMethodJoinPoint(String bean, Object beanObject, Object advisor, AdviceDefinition advice, JoinPoint joinPoint,
-			Map<String, Pointcut> pointcutMap) {
+	// e.g. @Before(beans = { "barBean.method(*)", "barBean.find*()" })
+	// If the method isn't required, a missing method is skipped rather than
+	// treated as an error, since a bean name pattern may match beans without it
+	// Methods excluded by the advice are skipped
+	private void processBeanMethodJoinPoint(String bean, Class<?> beanType, CompiledAdvice compiled, JoinPoint joinPoint,
+			List<JoinPoint> joinPoints, Pattern methodPattern, boolean required) {
+		Object advisor = compiled.mAdvisor;
+		AdviceDefinition advice = compiled.mAdvice;
+		String beanName = joinPoint.getBeanName();
 		if (!bean.endsWith(")"))
 			throw new InfinitumRuntimeException("Invalid join point '" + bean + "' in aspect '" + advisor.getClass().getName() + "'.");
 		String methodName;
@@ -158,46 +491,418 @@ public class GenericPointcutBuilder implements PointcutBuilder {
 		} catch (IndexOutOfBoundsException e) {
 			throw new InfinitumRuntimeException("Invalid join point '" + bean + "' in aspect '" + advisor.getClass().getName() + "'.");
 		}
-		if (args.length == 0) {
-			// Parameterless method
-			Method method = mClassReflector.getMethod(beanObject.getClass(), methodName);
-			if (method == null)
-				throw new InfinitumRuntimeException("Method '" + methodName + "' from pointcut '" + bean + "' could not be found.");
-			joinPoint.setMethod(method);
-			putJoinPoint(pointcutMap, joinPoint);
-		} else if (args[0].trim().equals("*")) {
+		boolean anyArgs = args.length > 0 && args[0].trim().equals("*");
+		Class<?>[] argTypes = new Class<?>[anyArgs ? 0 : args.length];
+		for (int i = 0; i < argTypes.length; i++)
+			argTypes[i] = mClassReflector.getClass(args[i].trim());
+		if (methodPattern == null && methodName.indexOf('*') != -1)
+			methodPattern = WildcardPatterns.compileName(methodName);
+		if (methodPattern != null) {
+			// Method name pattern -- add all matching methods with the given
+			// arguments
+			for (Method method : ClassMetadata.forClass(beanType).getAdvisableMethods()) {
+				if (!methodPattern.matcher(method.getName()).matches())
+					continue;
+				if (!anyArgs && !Arrays.equals(argTypes, method.getParameterTypes()))
+					continue;
+				if (compiled.mExclusions.excludes(beanName, method))
+					continue;
+				JoinPoint copied = copyJoinPoint(advice, joinPoint);
+				copied.setMethod(method);
+				joinPoints.add(copied);
+			}
+		} else if (anyArgs) {
 			// Wildcard -- add all methods with the given name
-			for (Method method : mClassReflector.getMethodsByName(beanObject.getClass(), methodName)) {
-				JoinPoint copied = advice.getType() == AdviceLocation.Around ? new BasicProceedingJoinPoint(
-						(BasicProceedingJoinPoint) joinPoint) : new BasicJoinPoint((BasicJoinPoint) joinPoint);
+			for (Method method : mClassReflector.getMethodsByName(beanType, methodName)) {
+				if (compiled.mExclusions.excludes(beanName, method))
+					continue;
+				JoinPoint copied = copyJoinPoint(advice, joinPoint);
 				copied.setMethod(method);
-				putJoinPoint(pointcutMap, copied);
+				joinPoints.add(copied);
 			}
 		} else {
 			// Add method with the given arguments
-			Class<?>[] argTypes = new Class<?>[args.length];
-			for (int i = 0; i < args.length; i++) {
-				argTypes[i] = mClassReflector.getClass(args[i].trim());
-			}
-			Method method = mClassReflector.getMethod(beanObject.getClass(), methodName, argTypes);
-			if (method == null)
+			Method method = argTypes.length == 0 ? mClassReflector.getMethod(beanType, methodName) : mClassReflector.getMethod(
+					beanType, methodName, argTypes);
+			if (method == null) {
+				if (!required)
+					return;
 				throw new InfinitumRuntimeException("Method '" + methodName + "' from pointcut '" + bean + "' could not be found.");
+			}
+			if (compiled.mExclusions.excludes(beanName, method))
+				return;
 			joinPoint.setMethod(method);
-			putJoinPoint(pointcutMap, joinPoint);
+			joinPoints.add(joinPoint);
+		}
+	}
+
+	// Adds a class-scope JoinPoint for the bean, unless the advice excludes
+	// some of its methods, in which case each remaining advisable method is
+	// advised individually
+	private void addClassScopeJoinPoint(CompiledAdvice compiled, String beanName, Class<?> beanType, List<JoinPoint> joinPoints) {
+		Exclusions exclusions = compiled.mExclusions;
+		if (!exclusions.excludesMethodsOf(beanName)) {
+			JoinPoint joinPoint = createJoinPoint(compiled.mAdvisor, compiled.mAdvice, beanName);
+			joinPoint.setClassScope(true);
+			joinPoints.add(joinPoint);
+			return;
 		}
+		for (Method method : ClassMetadata.forClass(beanType).getAdvisableMethods()) {
+			if (exclusions.excludes(beanName, method))
+				continue;
+			JoinPoint joinPoint = createJoinPoint(compiled.mAdvisor, compiled.mAdvice, beanName);
+			joinPoint.setMethod(method);
+			joinPoints.add(joinPoint);
+		}
+	}
+
+	private JoinPoint copyJoinPoint(AdviceDefinition advice, JoinPoint joinPoint) {
+		return advice.getType() == AdviceLocation.Around ? new BasicProceedingJoinPoint((BasicProceedingJoinPoint) joinPoint)
+				: new BasicJoinPoint((BasicJoinPoint) joinPoint);
+	}
+
+	private JoinPoint createJoinPoint(Object advisor, AdviceDefinition advice, String beanName) {
+		JoinPoint joinPoint = advice.getType() == AdviceLocation.Around ? new BasicProceedingJoinPoint(mContext, advisor,
+				advice.getMethod()) : new BasicJoinPoint(mContext, advisor, advice.getMethod(), advice.getType());
+		joinPoint.setBeanName(beanName);
+		joinPoint.setOrder(advice.getOrder());
+		return joinPoint;
 	}
 
 	// Adds the JoinPoint to a Pointcut in pointcutMap
-	// If there's no Pointcut for the type, it will add one
+	// If there's no Pointcut for the bean, it will add one typed from the
+	// bean definition, so the bean isn't instantiated while building
+	// Pointcuts; targets are bound when the advised proxy is materialized
 	private void putJoinPoint(Map<String, Pointcut> pointcutMap, JoinPoint joinPoint) {
-		
-		if (pointcutMap.containsKey(joinPoint.getBeanName())) {
-			pointcutMap.get(joinPoint.getBeanName()).addJoinPoint(joinPoint);
+		String beanName = joinPoint.getBeanName();
+		if (pointcutMap.containsKey(beanName)) {
+			pointcutMap.get(beanName).addJoinPoint(joinPoint);
 		} else {
-			Pointcut pointcut = new Pointcut(joinPoint.getBeanName(), joinPoint.getTargetType());
+			Pointcut pointcut = new Pointcut(beanName, mBeanFactory.getBeanDefinition(beanName).getType());
 			pointcut.addJoinPoint(joinPoint);
-			pointcutMap.put(joinPoint.getBeanName(), pointcut);
+			pointcutMap.put(beanName, pointcut);
+		}
+	}
+
+	/**
+	 * A single {@link AdviceDefinition} along with its advisor and compiled
+	 * pointcut expressions. Compiled advice is retained after a build so that
+	 * beans added later can be matched without recompiling the aspects.
+	 * Matching only reads from the bean registry, so advice can safely be
+	 * matched concurrently.
+	 */
+	private class CompiledAdvice implements Comparable<CompiledAdvice> {
+
+		private AspectDefinition mAspect;
+		private Object mAdvisor;
+		private AdviceDefinition mAdvice;
+		private List<PointcutExpression> mExpressions;
+		private List<BeanNamePattern> mBeanPatterns;
+		private Exclusions mExclusions;
+		private boolean mExclusionsOnly;
+		private int mIndex;
+
+		public CompiledAdvice(AspectDefinition aspect, Object advisor, AdviceDefinition advice, int index) {
+			mAspect = aspect;
+			mAdvisor = advisor;
+			mAdvice = advice;
+			mIndex = index;
+			mExpressions = new ArrayList<PointcutExpression>();
+			mBeanPatterns = new ArrayList<BeanNamePattern>();
+			mExclusions = new Exclusions(advice);
+			mExclusionsOnly = !mExclusions.isEmpty();
+			for (String value : advice.getPointcutValue()) {
+				if (value.trim().length() > 0 && !Exclusions.isExclusion(value.trim()))
+					mExclusionsOnly = false;
+			}
+			if (advice.getPointcutType().equalsIgnoreCase("expression")) {
+				for (String value : advice.getPointcutValue()) {
+					if (value.trim().length() > 0)
+						mExpressions.add(PointcutExpression.compile(value));
+				}
+			} else if (advice.getPointcutType().equalsIgnoreCase("beans")) {
+				for (String value : advice.getPointcutValue()) {
+					value = value.trim();
+					if (Exclusions.isExclusion(value))
+						continue;
+					int dot = value.indexOf('.');
+					if ((dot == -1 ? value : value.substring(0, dot)).indexOf('*') != -1)
+						mBeanPatterns.add(new BeanNamePattern(value));
+				}
+				// A pointcut consisting only of exclusions applies to every
+				// other bean
+				if (mExclusionsOnly)
+					mBeanPatterns.add(new BeanNamePattern("*"));
+			}
+		}
+
+		public List<JoinPoint> match(BeanScope scope) {
+			List<JoinPoint> joinPoints = new ArrayList<JoinPoint>();
+			processAdvice(this, scope, joinPoints);
+			return joinPoints;
+		}
+
+		@Override
+		public int compareTo(CompiledAdvice other) {
+			if (mAdvice.getOrder() != other.mAdvice.getOrder())
+				return mAdvice.getOrder() < other.mAdvice.getOrder() ? -1 : 1;
+			int result = String.valueOf(mAspect.getName()).compareTo(String.valueOf(other.mAspect.getName()));
+			if (result != 0)
+				return result;
+			result = String.valueOf(mAdvice.getMethod()).compareTo(String.valueOf(other.mAdvice.getMethod()));
+			if (result != 0)
+				return result;
+			return mIndex - other.mIndex;
+		}
+
+	}
+
+	/**
+	 * Identifies the advice a {@link JoinPoint} applies to a bean or one of its
+	 * methods. Advisors are compared by identity.
+	 */
+	private static class JoinPointKey {
+
+		private Object mAdvisor;
+		private Method mAdvice;
+		private String mBeanName;
+		private Method mMethod;
+
+		public JoinPointKey(JoinPoint joinPoint, Method method) {
+			mAdvisor = joinPoint.getAdvisor();
+			mAdvice = joinPoint.getAdvice();
+			mBeanName = joinPoint.getBeanName();
+			mMethod = method;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (!(object instanceof JoinPointKey))
+				return false;
+			JoinPointKey other = (JoinPointKey) object;
+			return mAdvisor == other.mAdvisor && mAdvice.equals(other.mAdvice) && mBeanName.equals(other.mBeanName)
+					&& (mMethod == null ? other.mMethod == null : mMethod.equals(other.mMethod));
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = System.identityHashCode(mAdvisor);
+			hash = 31 * hash + mAdvice.hashCode();
+			hash = 31 * hash + mBeanName.hashCode();
+			hash = 31 * hash + (mMethod == null ? 0 : mMethod.hashCode());
+			return hash;
+		}
+
+	}
+
+	/**
+	 * A compiled {@code beans} pointcut value whose bean name contains
+	 * wildcards, e.g. {@code order*.find*(*)}.
+	 */
+	private static class BeanNamePattern {
+
+		private String mValue;
+		private Pattern mName;
+		private Pattern mMethod;
+		private boolean mClassScope;
+
+		public BeanNamePattern(String value) {
+			mValue = value;
+			int dot = value.indexOf('.');
+			mClassScope = dot == -1;
+			mName = WildcardPatterns.compileName(mClassScope ? value : value.substring(0, dot));
+			if (!mClassScope) {
+				int paren = value.indexOf('(', dot);
+				String method = paren == -1 ? value.substring(dot + 1) : value.substring(dot + 1, paren);
+				if (method.indexOf('*') != -1)
+					mMethod = WildcardPatterns.compileName(method);
+			}
+		}
+
+	}
+
+	/**
+	 * The exclusions of a {@code beans} or {@code within} pointcut, i.e. its
+	 * values prefixed with {@code !}. An exclusion naming a method, e.g.
+	 * {@code !*.toString()} or {@code !fooBean.find*(*)}, excludes the matching
+	 * methods of the matching beans. Otherwise it excludes whole beans: by bean
+	 * name pattern for {@code beans} pointcuts, e.g. {@code !*Dao}, or by
+	 * package for {@code within} pointcuts, e.g. {@code !com.foo.internal}.
+	 */
+	private static class Exclusions {
+
+		private List<Pattern> mBeans;
+		private List<String> mPackages;
+		private List<MethodExclusion> mMethods;
+
+		public Exclusions(AdviceDefinition advice) {
+			mBeans = new ArrayList<Pattern>();
+			mPackages = new ArrayList<String>();
+			mMethods = new ArrayList<MethodExclusion>();
+			boolean within = advice.getPointcutType().equalsIgnoreCase("within");
+			if (!within && !advice.getPointcutType().equalsIgnoreCase("beans"))
+				return;
+			for (String value : advice.getPointcutValue()) {
+				value = value.trim();
+				if (!isExclusion(value))
+					continue;
+				value = value.substring(1).trim();
+				if (value.length() == 0)
+					continue;
+				if (value.indexOf('(') != -1)
+					mMethods.add(new MethodExclusion(value));
+				else if (within)
+					mPackages.add(value.toLowerCase(Locale.getDefault()));
+				else
+					mBeans.add(WildcardPatterns.compileName(value));
+			}
 		}
+
+		public static boolean isExclusion(String value) {
+			return value.startsWith("!");
+		}
+
+		public boolean isEmpty() {
+			return mBeans.isEmpty() && mPackages.isEmpty() && mMethods.isEmpty();
+		}
+
+		public boolean excludes(String beanName, Class<?> beanType) {
+			for (Pattern bean : mBeans) {
+				if (bean.matcher(beanName).matches())
+					return true;
+			}
+			if (mPackages.isEmpty() || beanType == null)
+				return false;
+			// Matched like the packages a within pointcut includes: the value
+			// is lowercased, but the type name isn't
+			String typeName = beanType.getName();
+			for (String pkg : mPackages) {
+				if (typeName.startsWith(pkg))
+					return true;
+			}
+			return false;
+		}
+
+		public boolean excludesMethodsOf(String beanName) {
+			for (MethodExclusion exclusion : mMethods) {
+				if (exclusion.mBean.matcher(beanName).matches())
+					return true;
+			}
+			return false;
+		}
+
+		public boolean excludes(String beanName, Method method) {
+			for (MethodExclusion exclusion : mMethods) {
+				if (exclusion.matches(beanName, method))
+					return true;
+			}
+			return false;
+		}
+
+	}
+
+	/**
+	 * An exclusion naming bean methods, e.g. {@code *.toString()}. Parameters
+	 * are matched by simple or fully qualified type name, and {@code (*)}
+	 * matches any parameters.
+	 */
+	private static class MethodExclusion {
+
+		private Pattern mBean;
+		private Pattern mMethod;
+		private String[] mParameters;
+
+		public MethodExclusion(String value) {
+			int paren = value.indexOf('(');
+			int dot = value.lastIndexOf('.', paren);
+			mBean = WildcardPatterns.compileName(dot == -1 ? "*" : value.substring(0, dot));
+			mMethod = WildcardPatterns.compileName(value.substring(dot + 1, paren));
+			int close = value.indexOf(')', paren);
+			String params = value.substring(paren + 1, close == -1 ? value.length() : close).trim();
+			if (!params.equals("*"))
+				mParameters = params.length() == 0 ? new String[0] : params.split(",");
+		}
+
+		public boolean matches(String beanName, Method method) {
+			if (!mMethod.matcher(method.getName()).matches() || !mBean.matcher(beanName).matches())
+				return false;
+			if (mParameters == null)
+				return true;
+			Class<?>[] types = method.getParameterTypes();
+			if (types.length != mParameters.length)
+				return false;
+			for (int i = 0; i < types.length; i++) {
+				String parameter = mParameters[i].trim();
+				if (!parameter.equals(types[i].getName()) && !parameter.equals(types[i].getSimpleName()))
+					return false;
+			}
+			return true;
+		}
+
+	}
+
+	/**
+	 * The bean definitions advice is matched against, along with their
+	 * indexes. A restricted scope only matches {@code beans} pointcuts naming
+	 * one of its beans.
+	 */
+	private static class BeanScope {
+
+		private BeanPackageIndex mPackageIndex;
+		private MethodAnnotationIndex mAnnotationIndex;
+		private MethodSpace mMethodSpace;
+		private Set<String> mNames;
+
+		public BeanScope(Collection<AbstractBeanDefinition> beans, boolean restricted) {
+			mPackageIndex = new BeanPackageIndex(beans);
+			if (restricted) {
+				mNames = new HashSet<String>();
+				for (AbstractBeanDefinition bean : beans)
+					mNames.add(bean.getName());
+			}
+		}
+
+		public boolean includes(String beanName) {
+			return mNames == null || mNames.contains(beanName);
+		}
+
+		public boolean contains(AbstractBeanDefinition bean) {
+			return mPackageIndex.getAll().contains(bean);
+		}
+
+		// Lazily indexes the annotated methods of the scope's beans, the first
+		// time an annotation pointcut is processed
+		public synchronized MethodAnnotationIndex getAnnotationIndex() {
+			if (mAnnotationIndex == null) {
+				mAnnotationIndex = new MethodAnnotationIndex();
+				for (AbstractBeanDefinition bean : mPackageIndex.getAll())
+					mAnnotationIndex.add(bean);
+			}
+			return mAnnotationIndex;
+		}
+
+		// Lazily numbers the advisable methods of the scope's beans, the first
+		// time an expression pointcut is processed
+		public synchronized MethodSpace getMethodSpace() {
+			if (mMethodSpace == null)
+				mMethodSpace = new MethodSpace(mPackageIndex.getAll());
+			return mMethodSpace;
+		}
+
+		public synchronized void addAll(Collection<AbstractBeanDefinition> beans) {
+			for (AbstractBeanDefinition bean : beans) {
+				if (contains(bean) || bean.getType() == null)
+					continue;
+				mPackageIndex.add(bean);
+				if (mNames != null)
+					mNames.add(bean.getName());
+				if (mAnnotationIndex != null)
+					mAnnotationIndex.add(bean);
+			}
+			// Method IDs are dense, so the space is renumbered when next needed
+			mMethodSpace = null;
+		}
+
 	}
 
 }
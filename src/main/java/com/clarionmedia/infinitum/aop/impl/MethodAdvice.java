@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.aop.JoinPoint;
+import com.clarionmedia.infinitum.aop.ProceedingJoinPoint;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p> Resolved advice for a single proxied {@link Method}. Advised proxies resolve a {@code MethodAdvice} the first
+ * time a method is invoked and reuse it for every subsequent call, so the per-call path no longer has to compare
+ * method signatures against each {@link JoinPoint}. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+final class MethodAdvice {
+
+    private final Method mMethod;
+    private final List<JoinPoint> mBeforeAdvice;
+    private final List<JoinPoint> mAfterAdvice;
+    private final ProceedingJoinPoint mAroundAdvice;
+    private final boolean mCopyAroundAdvice;
+
+    private MethodAdvice(Method method, List<JoinPoint> before, List<JoinPoint> after, ProceedingJoinPoint around) {
+        mMethod = method;
+        mBeforeAdvice = before;
+        mAfterAdvice = after;
+        mAroundAdvice = around;
+        mCopyAroundAdvice = isCopyable(around);
+    }
+
+    /**
+     * Resolves the advice which applies to the given {@link Method}.
+     *
+     * @param method       the {@code Method} being invoked on the target
+     * @param beforeAdvice the proxy's before advice
+     * @param afterAdvice  the proxy's after advice
+     * @param aroundAdvice the head of the proxy's around advice chain, or {@code null}
+     * @return {@code MethodAdvice}
+     */
+    static MethodAdvice resolve(Method method, List<JoinPoint> beforeAdvice, List<JoinPoint> afterAdvice,
+                                ProceedingJoinPoint aroundAdvice) {
+        return new MethodAdvice(method, filter(beforeAdvice, method), filter(afterAdvice, method),
+                aroundAdvice != null && applies(aroundAdvice, method) ? aroundAdvice : null);
+    }
+
+    /**
+     * Indicates if the given {@link JoinPoint} applies to the given {@link Method}.
+     *
+     * @param joinPoint the {@code JoinPoint} to check
+     * @param method    the {@code Method} to check
+     * @return {@code true} if it applies, {@code false} if not
+     */
+    static boolean applies(JoinPoint joinPoint, Method method) {
+        if (joinPoint.isClassScope())
+            return true;
+        Method joinPointMethod = joinPoint.getMethod();
+        if (joinPointMethod == null)
+            return false;
+        if (!joinPointMethod.getName().equals(method.getName()))
+            return false;
+        return Arrays.equals(joinPointMethod.getParameterTypes(), method.getParameterTypes());
+    }
+
+    /**
+     * Returns the {@link Method} invoked on the target.
+     *
+     * @return target {@code Method}
+     */
+    Method getMethod() {
+        return mMethod;
+    }
+
+    /**
+     * Returns the before advice which applies to the method.
+     *
+     * @return before advice
+     */
+    List<JoinPoint> getBeforeAdvice() {
+        return mBeforeAdvice;
+    }
+
+    /**
+     * Returns the after advice which applies to the method.
+     *
+     * @return after advice
+     */
+    List<JoinPoint> getAfterAdvice() {
+        return mAfterAdvice;
+    }
+
+    /**
+     * Returns the around advice chain which applies to the method, or {@code null} if there is none.
+     *
+     * @return around advice
+     */
+    ProceedingJoinPoint getAroundAdvice() {
+        return mAroundAdvice;
+    }
+
+    /**
+     * Returns the around advice chain bound to a single call of the method, or {@code null} if there is none. The
+     * proxy's join points are shared by concurrent calls, so a chain of {@link BasicProceedingJoinPoint}s is copied
+     * for each call, letting advice keep the call's method and arguments while other calls proceed. Chains containing
+     * other implementations are bound in place.
+     *
+     * @param args the arguments of the call
+     * @return around advice bound to the call
+     */
+    ProceedingJoinPoint bindAroundAdvice(Object[] args) {
+        if (mAroundAdvice == null)
+            return null;
+        if (!mCopyAroundAdvice) {
+            mAroundAdvice.setMethod(mMethod);
+            mAroundAdvice.setArguments(args);
+            return mAroundAdvice;
+        }
+        ProceedingJoinPoint head = null;
+        ProceedingJoinPoint tail = null;
+        for (ProceedingJoinPoint joinPoint = mAroundAdvice; joinPoint != null; joinPoint = joinPoint.next()) {
+            BasicProceedingJoinPoint copy = new BasicProceedingJoinPoint((BasicProceedingJoinPoint) joinPoint);
+            copy.setNext(null);
+            copy.setMethod(mMethod);
+            copy.setArguments(args);
+            if (tail == null)
+                head = copy;
+            else
+                tail.setNext(copy);
+            tail = copy;
+        }
+        return head;
+    }
+
+    // Subclasses may hold state a copy wouldn't carry, so only exact BasicProceedingJoinPoints are copied
+    private static boolean isCopyable(ProceedingJoinPoint aroundAdvice) {
+        for (ProceedingJoinPoint joinPoint = aroundAdvice; joinPoint != null; joinPoint = joinPoint.next()) {
+            if (joinPoint.getClass() != BasicProceedingJoinPoint.class)
+                return false;
+        }
+        return aroundAdvice != null;
+    }
+
+    private static List<JoinPoint> filter(List<JoinPoint> advice, Method method) {
+        List<JoinPoint> applicable = null;
+        for (JoinPoint joinPoint : advice) {
+            if (applies(joinPoint, method)) {
+                if (applicable == null)
+                    applicable = new ArrayList<JoinPoint>(advice.size());
+                applicable.add(joinPoint);
+            }
+        }
+        if (applicable == null)
+            return Collections.emptyList();
+        return applicable;
+    }
+
+}
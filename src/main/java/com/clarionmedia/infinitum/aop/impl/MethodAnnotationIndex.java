@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.di.AbstractBeanDefinition;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.*;
+
+/**
+ * <p> Index of bean methods keyed by the annotations present on them. Each method is inspected once when it's added,
+ * so {@code annotation} pointcuts can be resolved without reflecting on every bean for every advice. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+public class MethodAnnotationIndex {
+
+    private Map<String, List<AnnotatedMethod>> mMethods;
+
+    /**
+     * Creates a new, empty {@code MethodAnnotationIndex}.
+     */
+    public MethodAnnotationIndex() {
+        mMethods = new HashMap<String, List<AnnotatedMethod>>();
+    }
+
+    /**
+     * Adds the annotated, advisable methods of the given bean to the index.
+     *
+     * @param bean the {@link AbstractBeanDefinition} to add
+     */
+    public void add(AbstractBeanDefinition bean) {
+        ClassMetadata metadata = ClassMetadata.forClass(bean.getType());
+        for (Method method : metadata.getAdvisableMethods()) {
+            for (Annotation annotation : metadata.getAnnotations(method)) {
+                String type = annotation.annotationType().getName();
+                List<AnnotatedMethod> annotated = mMethods.get(type);
+                if (annotated == null) {
+                    annotated = new ArrayList<AnnotatedMethod>();
+                    mMethods.put(type, annotated);
+                }
+                annotated.add(new AnnotatedMethod(bean, method));
+            }
+        }
+    }
+
+    /**
+     * Returns the indexed methods annotated with the given annotation type.
+     *
+     * @param annotationType the fully qualified name of the annotation type
+     * @return annotated methods
+     */
+    public List<AnnotatedMethod> find(String annotationType) {
+        List<AnnotatedMethod> annotated = mMethods.get(annotationType);
+        if (annotated == null)
+            return Collections.emptyList();
+        return annotated;
+    }
+
+    /**
+     * A bean method bearing an indexed annotation.
+     */
+    public static class AnnotatedMethod {
+
+        private AbstractBeanDefinition mBean;
+        private Method mMethod;
+
+        private AnnotatedMethod(AbstractBeanDefinition bean, Method method) {
+            mBean = bean;
+            mMethod = method;
+        }
+
+        /**
+         * Returns the bean definition the method belongs to.
+         *
+         * @return {@code AbstractBeanDefinition}
+         */
+        public AbstractBeanDefinition getBean() {
+            return mBean;
+        }
+
+        /**
+         * Returns the annotated method.
+         *
+         * @return {@code Method}
+         */
+        public Method getMethod() {
+            return mMethod;
+        }
+
+    }
+
+}
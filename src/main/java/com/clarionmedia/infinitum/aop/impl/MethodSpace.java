@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.di.AbstractBeanDefinition;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p> Dense numbering of a set of beans and their advisable methods, used to evaluate {@link PointcutExpression}s
+ * against every candidate method at once. Each bean is assigned an ID and a contiguous range of method IDs, so a
+ * pointcut predicate evaluates to a {@link Selection} of {@link BitSet}s and predicates are combined with word-wide
+ * {@code and}, {@code or} and {@code not} operations rather than per-method checks. </p>
+ * <p> Selections of individual designators are cached by their source, so a designator shared by several advice
+ * definitions is only evaluated once per space. Instances are safe to use from multiple threads. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+final class MethodSpace {
+
+    private final List<AbstractBeanDefinition> mBeans;
+    private final int[] mStart;
+    private final Method[] mMethods;
+    private final int[] mOwner;
+    private final ConcurrentMap<String, Selection> mSelections;
+
+    /**
+     * Numbers the given beans and their advisable methods.
+     *
+     * @param beans the {@link AbstractBeanDefinition}s to number
+     */
+    MethodSpace(Collection<AbstractBeanDefinition> beans) {
+        mBeans = new ArrayList<AbstractBeanDefinition>(beans);
+        mStart = new int[mBeans.size() + 1];
+        List<Method> methods = new ArrayList<Method>();
+        List<Integer> owners = new ArrayList<Integer>();
+        for (int i = 0; i < mBeans.size(); i++) {
+            mStart[i] = methods.size();
+            for (Method method : ClassMetadata.forClass(mBeans.get(i).getType()).getAdvisableMethods()) {
+                methods.add(method);
+                owners.add(i);
+            }
+        }
+        mStart[mBeans.size()] = methods.size();
+        mMethods = methods.toArray(new Method[methods.size()]);
+        mOwner = new int[owners.size()];
+        for (int i = 0; i < mOwner.length; i++)
+            mOwner[i] = owners.get(i);
+        mSelections = new ConcurrentHashMap<String, Selection>();
+    }
+
+    /**
+     * Returns the number of beans in the space.
+     *
+     * @return bean count
+     */
+    int getBeanCount() {
+        return mBeans.size();
+    }
+
+    /**
+     * Returns the number of methods in the space.
+     *
+     * @return method count
+     */
+    int getMethodCount() {
+        return mMethods.length;
+    }
+
+    /**
+     * Returns the bean with the given ID.
+     *
+     * @param bean the bean ID
+     * @return {@link AbstractBeanDefinition}
+     */
+    AbstractBeanDefinition getBean(int bean) {
+        return mBeans.get(bean);
+    }
+
+    /**
+     * Returns the method with the given ID.
+     *
+     * @param method the method ID
+     * @return {@link Method}
+     */
+    Method getMethod(int method) {
+        return mMethods[method];
+    }
+
+    /**
+     * Returns the ID of the bean the given method belongs to.
+     *
+     * @param method the method ID
+     * @return bean ID
+     */
+    int getOwner(int method) {
+        return mOwner[method];
+    }
+
+    /**
+     * Returns the ID following the last method ID of the given bean.
+     *
+     * @param bean the bean ID
+     * @return end of the bean's method range, exclusive
+     */
+    int getEnd(int bean) {
+        return mStart[bean + 1];
+    }
+
+    /**
+     * Evaluates a single designator against every bean and method in the space, or returns its cached selection if
+     * an identical designator was evaluated before.
+     *
+     * @param designator the designator to evaluate
+     * @return {@link Selection}
+     */
+    Selection select(PointcutExpression designator) {
+        String key = designator.toString();
+        Selection selection = mSelections.get(key);
+        if (selection != null)
+            return selection;
+        selection = new Selection(this);
+        for (int i = 0; i < mBeans.size(); i++) {
+            AbstractBeanDefinition bean = mBeans.get(i);
+            String beanName = bean.getName();
+            Class<?> beanType = bean.getType();
+            switch (designator.matchesType(beanName, beanType)) {
+                case ALWAYS:
+                    selection.mAlways.set(i);
+                    selection.mMethods.set(mStart[i], mStart[i + 1]);
+                    break;
+                case NEVER:
+                    selection.mNever.set(i);
+                    break;
+                default:
+                    for (int j = mStart[i]; j < mStart[i + 1]; j++) {
+                        if (designator.matches(beanName, beanType, mMethods[j]))
+                            selection.mMethods.set(j);
+                    }
+            }
+        }
+        Selection existing = mSelections.putIfAbsent(key, selection);
+        return existing == null ? selection : existing;
+    }
+
+    /**
+     * The result of evaluating a pointcut expression over a {@link MethodSpace}: the beans every method of which
+     * matches, the beans none of which match, and the individual methods which match. Selections are immutable;
+     * combining them creates a new {@code Selection}.
+     */
+    static final class Selection {
+
+        private final int mMethodCount;
+        private final BitSet mAlways;
+        private final BitSet mNever;
+        private final BitSet mMethods;
+
+        private Selection(MethodSpace space) {
+            this(space.getMethodCount(), new BitSet(space.getBeanCount()),
+                    new BitSet(space.getBeanCount()), new BitSet(space.getMethodCount()));
+        }
+
+        private Selection(int methodCount, BitSet always, BitSet never, BitSet methods) {
+            mMethodCount = methodCount;
+            mAlways = always;
+            mNever = never;
+            mMethods = methods;
+        }
+
+        /**
+         * Returns the beans every method of which is selected.
+         *
+         * @return {@link BitSet} of bean IDs
+         */
+        BitSet getAlways() {
+            return mAlways;
+        }
+
+        /**
+         * Returns the selected methods.
+         *
+         * @return {@link BitSet} of method IDs
+         */
+        BitSet getMethods() {
+            return mMethods;
+        }
+
+        /**
+         * Returns the intersection of this selection and the given one.
+         *
+         * @param other the {@code Selection} to intersect with
+         * @return new {@code Selection}
+         */
+        Selection and(Selection other) {
+            Selection result = copy();
+            result.mAlways.and(other.mAlways);
+            result.mNever.or(other.mNever);
+            result.mMethods.and(other.mMethods);
+            return result;
+        }
+
+        /**
+         * Returns the union of this selection and the given one.
+         *
+         * @param other the {@code Selection} to unite with
+         * @return new {@code Selection}
+         */
+        Selection or(Selection other) {
+            Selection result = copy();
+            result.mAlways.or(other.mAlways);
+            result.mNever.and(other.mNever);
+            result.mMethods.or(other.mMethods);
+            return result;
+        }
+
+        /**
+         * Returns the complement of this selection.
+         *
+         * @return new {@code Selection}
+         */
+        Selection not() {
+            BitSet methods = (BitSet) mMethods.clone();
+            methods.flip(0, mMethodCount);
+            return new Selection(mMethodCount, (BitSet) mNever.clone(), (BitSet) mAlways.clone(),
+                    methods);
+        }
+
+        private Selection copy() {
+            return new Selection(mMethodCount, (BitSet) mAlways.clone(), (BitSet) mNever.clone(),
+                    (BitSet) mMethods.clone());
+        }
+
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p> Runs batches of independent AOP tasks, such as transforming aspects and matching advice against beans, across a
+ * pool of daemon threads shared by every batch. The pool starts up to one thread per available processor and its
+ * threads exit when idle, so it costs nothing once weaving has finished. Tasks submitted while every pool thread is
+ * busy run on the calling thread. Batches too small to benefit from the pool, and batches submitted from a pool
+ * thread, run inline on the calling thread. Results are returned in task order, so callers can merge them
+ * deterministically. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+public final class ParallelTasks {
+
+    /**
+     * Smallest number of tasks which are run across the pool rather than inline.
+     */
+    public static final int MIN_PARALLEL_TASKS = 4;
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final long KEEP_ALIVE_SECONDS = 10;
+
+    private static ThreadPoolExecutor sExecutor;
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Runs the given tasks and returns their results in task order. A task's {@link RuntimeException} is rethrown
+     * as is, and any other exception is wrapped in an {@link InfinitumRuntimeException}.
+     *
+     * @param tasks     the tasks to run
+     * @param operation what the tasks do, e.g. {@code "build pointcuts"}, used in exception messages
+     * @param <T>       the type of the tasks' results
+     * @return {@link List} of results
+     */
+    public static <T> List<T> invokeAll(List<Callable<T>> tasks, String operation) {
+        List<T> results = new ArrayList<T>(tasks.size());
+        try {
+            if (THREADS <= 1 || tasks.size() < MIN_PARALLEL_TASKS || Thread.currentThread() instanceof Worker) {
+                for (Callable<T> task : tasks)
+                    results.add(task.call());
+                return results;
+            }
+            for (Future<T> future : getExecutor().invokeAll(tasks))
+                results.add(future.get());
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InfinitumRuntimeException("Interrupted while trying to " + operation + ".", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new InfinitumRuntimeException("Unable to " + operation + ".", cause);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new InfinitumRuntimeException("Unable to " + operation + ".", e);
+        }
+    }
+
+    private static synchronized ThreadPoolExecutor getExecutor() {
+        if (sExecutor == null) {
+            // Without core threads every thread times out when idle, which allowCoreThreadTimeOut can't be used for
+            // before API 9
+            sExecutor = new ThreadPoolExecutor(0, THREADS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new SynchronousQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger mCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    return new Worker(runnable, "infinitum-aop-" + mCount.incrementAndGet());
+                }
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        return sExecutor;
+    }
+
+    // Marks pool threads, so tasks which submit tasks of their own run them inline rather than waiting on a pool
+    // they occupy
+    private static class Worker extends Thread {
+
+        private Worker(Runnable runnable, String name) {
+            super(runnable, name);
+            setDaemon(true);
+        }
+
+    }
+
+}
@@ -0,0 +1,532 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.context.exception.InfinitumConfigurationException;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * <p> A compiled AspectJ-style pointcut expression. Expressions are parsed once into a tree of matchers backed by
+ * precompiled {@link Pattern} instances and can then be evaluated against any number of beans and methods. The
+ * following designators are supported: </p>
+ * <ul>
+ * <li>{@code execution([modifiers] returnType [declaringType.]methodName(params))}, e.g.
+ * {@code execution(* com.foo..*Service.find*(..))}</li>
+ * <li>{@code within(typePattern)}, e.g. {@code within(com.foo..*)}</li>
+ * <li>{@code target(typePattern)}, e.g. {@code target(com.foo.Repository+)}</li>
+ * <li>{@code bean(namePattern)}, e.g. {@code bean(*Dao)}</li>
+ * </ul>
+ * <p> Designators can be combined with {@code &&}, {@code ||}, {@code !} and parentheses. In type patterns, {@code *}
+ * matches any part of a single name segment and {@code ..} matches any number of packages. A type pattern without a
+ * package, such as {@code String}, is matched against the simple name of the type. A type pattern ending in
+ * {@code +}, such as {@code com.foo.Repository+}, also matches every subtype of the types it names, so beans can be
+ * selected by superclass or interface. In parameter lists, {@code *} matches exactly one parameter and {@code ..}
+ * matches any number of parameters. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+public abstract class PointcutExpression {
+
+    /**
+     * Describes how an expression matches a bean type as a whole.
+     */
+    public static enum Match {
+
+        /**
+         * Every method of the type matches.
+         */
+        ALWAYS,
+
+        /**
+         * No method of the type matches.
+         */
+        NEVER,
+
+        /**
+         * Some methods of the type may match, so each one must be evaluated.
+         */
+        MAYBE
+
+    }
+
+    /**
+     * Compiles the given pointcut expression.
+     *
+     * @param expression the expression to compile
+     * @return compiled {@code PointcutExpression}
+     * @throws InfinitumConfigurationException if the expression is malformed
+     */
+    public static PointcutExpression compile(String expression) {
+        return new Parser(expression).parse();
+    }
+
+    /**
+     * Evaluates the expression against a bean without considering its methods.
+     *
+     * @param beanName the name of the bean
+     * @param type     the type of the bean
+     * @return {@link Match#ALWAYS} if every method of the bean matches, {@link Match#NEVER} if none do, or
+     *         {@link Match#MAYBE} if the bean's methods must be evaluated individually
+     */
+    public abstract Match matchesType(String beanName, Class<?> type);
+
+    /**
+     * Indicates if the expression matches the given method of a bean.
+     *
+     * @param beanName the name of the bean
+     * @param type     the type of the bean
+     * @param method   the {@link Method} to check
+     * @return {@code true} if it matches, {@code false} if not
+     */
+    public abstract boolean matches(String beanName, Class<?> type, Method method);
+
+    /**
+     * Evaluates the expression against every bean and method in the given {@link MethodSpace} at once. Designators
+     * are evaluated through the space, which caches their selections, and combined with bitwise operations.
+     *
+     * @param space the {@code MethodSpace} to evaluate against
+     * @return {@link MethodSpace.Selection}
+     */
+    MethodSpace.Selection select(MethodSpace space) {
+        return space.select(this);
+    }
+
+    private static class And extends PointcutExpression {
+
+        private final PointcutExpression mLeft;
+        private final PointcutExpression mRight;
+
+        private And(PointcutExpression left, PointcutExpression right) {
+            mLeft = left;
+            mRight = right;
+        }
+
+        @Override
+        public Match matchesType(String beanName, Class<?> type) {
+            Match left = mLeft.matchesType(beanName, type);
+            if (left == Match.NEVER)
+                return Match.NEVER;
+            Match right = mRight.matchesType(beanName, type);
+            if (right == Match.NEVER)
+                return Match.NEVER;
+            return left == Match.ALWAYS && right == Match.ALWAYS ? Match.ALWAYS : Match.MAYBE;
+        }
+
+        @Override
+        public boolean matches(String beanName, Class<?> type, Method method) {
+            return mLeft.matches(beanName, type, method) && mRight.matches(beanName, type, method);
+        }
+
+        @Override
+        MethodSpace.Selection select(MethodSpace space) {
+            return mLeft.select(space).and(mRight.select(space));
+        }
+
+    }
+
+    private static class Or extends PointcutExpression {
+
+        private final PointcutExpression mLeft;
+        private final PointcutExpression mRight;
+
+        private Or(PointcutExpression left, PointcutExpression right) {
+            mLeft = left;
+            mRight = right;
+        }
+
+        @Override
+        public Match matchesType(String beanName, Class<?> type) {
+            Match left = mLeft.matchesType(beanName, type);
+            if (left == Match.ALWAYS)
+                return Match.ALWAYS;
+            Match right = mRight.matchesType(beanName, type);
+            if (right == Match.ALWAYS)
+                return Match.ALWAYS;
+            return left == Match.NEVER && right == Match.NEVER ? Match.NEVER : Match.MAYBE;
+        }
+
+        @Override
+        public boolean matches(String beanName, Class<?> type, Method method) {
+            return mLeft.matches(beanName, type, method) || mRight.matches(beanName, type, method);
+        }
+
+        @Override
+        MethodSpace.Selection select(MethodSpace space) {
+            return mLeft.select(space).or(mRight.select(space));
+        }
+
+    }
+
+    private static class Not extends PointcutExpression {
+
+        private final PointcutExpression mOperand;
+
+        private Not(PointcutExpression operand) {
+            mOperand = operand;
+        }
+
+        @Override
+        public Match matchesType(String beanName, Class<?> type) {
+            Match match = mOperand.matchesType(beanName, type);
+            if (match == Match.ALWAYS)
+                return Match.NEVER;
+            if (match == Match.NEVER)
+                return Match.ALWAYS;
+            return Match.MAYBE;
+        }
+
+        @Override
+        public boolean matches(String beanName, Class<?> type, Method method) {
+            return !mOperand.matches(beanName, type, method);
+        }
+
+        @Override
+        MethodSpace.Selection select(MethodSpace space) {
+            return mOperand.select(space).not();
+        }
+
+    }
+
+    private static class Bean extends PointcutExpression {
+
+        private final String mSource;
+        private final Pattern mName;
+
+        private Bean(String name) {
+            mSource = name;
+            mName = WildcardPatterns.compileName(name);
+        }
+
+        @Override
+        public Match matchesType(String beanName, Class<?> type) {
+            return beanName != null && mName.matcher(beanName).matches() ? Match.ALWAYS : Match.NEVER;
+        }
+
+        @Override
+        public boolean matches(String beanName, Class<?> type, Method method) {
+            return matchesType(beanName, type) == Match.ALWAYS;
+        }
+
+        @Override
+        public String toString() {
+            return "bean(" + mSource + ")";
+        }
+
+    }
+
+    private static class Within extends PointcutExpression {
+
+        private final String mSource;
+        private final TypePattern mType;
+
+        private Within(String type) {
+            mSource = type;
+            mType = new TypePattern(type);
+        }
+
+        @Override
+        public Match matchesType(String beanName, Class<?> type) {
+            return mType.matches(type) ? Match.ALWAYS : Match.NEVER;
+        }
+
+        @Override
+        public boolean matches(String beanName, Class<?> type, Method method) {
+            return mType.matches(type);
+        }
+
+        @Override
+        public String toString() {
+            return "within(" + mSource + ")";
+        }
+
+    }
+
+    private static class Execution extends PointcutExpression {
+
+        private final String mSource;
+        private final int mModifiers;
+        private final TypePattern mReturnType;
+        private final TypePattern mDeclaringType;
+        private final Pattern mName;
+        private final List<TypePattern> mParameters;
+
+        private Execution(String source, int modifiers, TypePattern returnType, TypePattern declaringType,
+                          Pattern name, List<TypePattern> parameters) {
+            mSource = source;
+            mModifiers = modifiers;
+            mReturnType = returnType;
+            mDeclaringType = declaringType;
+            mName = name;
+            mParameters = parameters;
+        }
+
+        @Override
+        public Match matchesType(String beanName, Class<?> type) {
+            return mDeclaringType.matches(type) ? Match.MAYBE : Match.NEVER;
+        }
+
+        @Override
+        public boolean matches(String beanName, Class<?> type, Method method) {
+            return (method.getModifiers() & mModifiers) == mModifiers && mName.matcher(method.getName()).matches()
+                    && mReturnType.matches(method.getReturnType()) && mDeclaringType.matches(type)
+                    && matchParameters(0, method.getParameterTypes(), 0);
+        }
+
+        private boolean matchParameters(int patternIndex, Class<?>[] types, int typeIndex) {
+            if (patternIndex == mParameters.size())
+                return typeIndex == types.length;
+            TypePattern pattern = mParameters.get(patternIndex);
+            if (pattern == TypePattern.ANY_SEQUENCE) {
+                for (int i = typeIndex; i <= types.length; i++) {
+                    if (matchParameters(patternIndex + 1, types, i))
+                        return true;
+                }
+                return false;
+            }
+            return typeIndex < types.length && pattern.matches(types[typeIndex])
+                    && matchParameters(patternIndex + 1, types, typeIndex + 1);
+        }
+
+        @Override
+        public String toString() {
+            return "execution(" + mSource + ")";
+        }
+
+    }
+
+    /**
+     * A compiled type pattern, e.g. {@code com.foo..*Service} or {@code com.foo.Repository+}. Patterns matching
+     * subtypes remember their result for each type they're evaluated against, so resolving them against the same
+     * type again is a lookup.
+     */
+    private static class TypePattern {
+
+        private static final TypePattern ANY_SEQUENCE = new TypePattern("*");
+
+        private final Pattern mPattern;
+        private final boolean mQualified;
+        private final ConcurrentMap<Class<?>, Boolean> mAssignable;
+
+        private TypePattern(String pattern) {
+            boolean subtypes = pattern.endsWith("+");
+            if (subtypes)
+                pattern = pattern.substring(0, pattern.length() - 1);
+            mPattern = pattern.equals("*") ? null : WildcardPatterns.compileType(pattern);
+            mQualified = pattern.indexOf('.') != -1;
+            mAssignable = subtypes && mPattern != null ? new ConcurrentHashMap<Class<?>, Boolean>() : null;
+        }
+
+        private boolean matches(Class<?> type) {
+            if (mPattern == null)
+                return true;
+            if (mAssignable == null)
+                return matchesName(type);
+            Boolean assignable = mAssignable.get(type);
+            if (assignable == null) {
+                assignable = Boolean.FALSE;
+                for (Class<?> supertype : TypeHierarchyIndex.getSupertypes(type)) {
+                    if (matchesName(supertype)) {
+                        assignable = Boolean.TRUE;
+                        break;
+                    }
+                }
+                mAssignable.put(type, assignable);
+            }
+            return assignable;
+        }
+
+        private boolean matchesName(Class<?> type) {
+            return mPattern.matcher(mQualified ? typeName(type) : type.getSimpleName()).matches();
+        }
+
+        private static String typeName(Class<?> type) {
+            if (type.isArray())
+                return typeName(type.getComponentType()) + "[]";
+            return type.getName();
+        }
+
+    }
+
+    /**
+     * Recursive descent parser for pointcut expressions.
+     */
+    private static class Parser {
+
+        private final String mExpression;
+        private int mPosition;
+
+        private Parser(String expression) {
+            mExpression = expression;
+        }
+
+        private PointcutExpression parse() {
+            PointcutExpression expression = parseOr();
+            skipWhitespace();
+            if (mPosition < mExpression.length())
+                throw error("unexpected '" + mExpression.charAt(mPosition) + "'");
+            return expression;
+        }
+
+        private PointcutExpression parseOr() {
+            PointcutExpression expression = parseAnd();
+            while (consume("||"))
+                expression = new Or(expression, parseAnd());
+            return expression;
+        }
+
+        private PointcutExpression parseAnd() {
+            PointcutExpression expression = parseUnary();
+            while (consume("&&"))
+                expression = new And(expression, parseUnary());
+            return expression;
+        }
+
+        private PointcutExpression parseUnary() {
+            if (consume("!"))
+                return new Not(parseUnary());
+            if (consume("(")) {
+                PointcutExpression expression = parseOr();
+                if (!consume(")"))
+                    throw error("missing ')'");
+                return expression;
+            }
+            return parseDesignator();
+        }
+
+        private PointcutExpression parseDesignator() {
+            skipWhitespace();
+            int start = mPosition;
+            while (mPosition < mExpression.length() && Character.isLetter(mExpression.charAt(mPosition)))
+                mPosition++;
+            String designator = mExpression.substring(start, mPosition);
+            if (designator.length() == 0)
+                throw error(mPosition < mExpression.length() ? "unexpected '" + mExpression.charAt(mPosition) + "'"
+                        : "unexpected end of expression");
+            if (!consume("("))
+                throw error("expected '(' after '" + designator + "'");
+            String body = readBody().trim();
+            if (body.length() == 0)
+                throw error("'" + designator + "' requires a pattern");
+            if (designator.equals("execution"))
+                return parseExecution(body);
+            // Advice is applied through proxies, so the target of a join point is always the bean itself
+            if (designator.equals("within") || designator.equals("target"))
+                return new Within(body);
+            if (designator.equals("bean"))
+                return new Bean(body);
+            throw error("unknown designator '" + designator + "'");
+        }
+
+        // Reads up to the parenthesis closing the current designator
+        private String readBody() {
+            int start = mPosition;
+            int depth = 1;
+            while (mPosition < mExpression.length()) {
+                char c = mExpression.charAt(mPosition++);
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')' && --depth == 0) {
+                    return mExpression.substring(start, mPosition - 1);
+                }
+            }
+            throw error("missing ')'");
+        }
+
+        // e.g. execution(public * com.foo..*Service.find*(String, ..))
+        private PointcutExpression parseExecution(String body) {
+            int open = body.indexOf('(');
+            if (open == -1 || !body.endsWith(")"))
+                throw error("execution pattern '" + body + "' has no parameter list");
+            String[] head = body.substring(0, open).trim().split("\\s+");
+            if (head.length < 2)
+                throw error("execution pattern '" + body + "' has no return type");
+            int modifiers = 0;
+            for (int i = 0; i < head.length - 2; i++)
+                modifiers |= parseModifier(head[i]);
+            String qualifiedName = head[head.length - 1];
+            TypePattern declaringType = new TypePattern("*");
+            String name = qualifiedName;
+            int dot = qualifiedName.lastIndexOf('.');
+            if (dot != -1) {
+                String type = qualifiedName.substring(0, dot);
+                // A trailing ".." leaves a dangling separator, e.g. com.foo..find*
+                if (type.endsWith("."))
+                    type += "*";
+                declaringType = new TypePattern(type);
+                name = qualifiedName.substring(dot + 1);
+            }
+            if (name.length() == 0)
+                throw error("execution pattern '" + body + "' has no method name");
+            return new Execution(body, modifiers, new TypePattern(head[head.length - 2]), declaringType,
+                    WildcardPatterns.compileName(name), parseParameters(body.substring(open + 1, body.length() - 1)));
+        }
+
+        private List<TypePattern> parseParameters(String parameters) {
+            if (parameters.trim().length() == 0)
+                return Collections.emptyList();
+            List<TypePattern> patterns = new ArrayList<TypePattern>();
+            for (String parameter : parameters.split(",")) {
+                parameter = parameter.trim();
+                if (parameter.length() == 0)
+                    throw error("empty parameter pattern");
+                patterns.add(parameter.equals("..") ? TypePattern.ANY_SEQUENCE : new TypePattern(parameter));
+            }
+            return patterns;
+        }
+
+        private int parseModifier(String modifier) {
+            if (modifier.equals("public"))
+                return Modifier.PUBLIC;
+            if (modifier.equals("protected"))
+                return Modifier.PROTECTED;
+            if (modifier.equals("synchronized"))
+                return Modifier.SYNCHRONIZED;
+            throw error("unsupported modifier '" + modifier + "'");
+        }
+
+        private boolean consume(String token) {
+            skipWhitespace();
+            if (mExpression.startsWith(token, mPosition)) {
+                mPosition += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (mPosition < mExpression.length() && Character.isWhitespace(mExpression.charAt(mPosition)))
+                mPosition++;
+        }
+
+        private InfinitumConfigurationException error(String reason) {
+            return new InfinitumConfigurationException("Invalid pointcut expression '" + mExpression + "': " + reason
+                    + ".");
+        }
+
+    }
+
+}
@@ -18,16 +18,20 @@ package com.clarionmedia.infinitum.aop.impl;
 
 import android.content.Context;
 import com.clarionmedia.infinitum.aop.*;
+import com.clarionmedia.infinitum.aop.AopStartupMetrics.Count;
+import com.clarionmedia.infinitum.aop.AopStartupMetrics.Phase;
+import com.clarionmedia.infinitum.di.AbstractBeanDefinition;
 import com.clarionmedia.infinitum.di.AbstractProxy;
 import com.clarionmedia.infinitum.di.BeanFactory;
 
+import java.util.Collection;
 import java.util.Set;
 
 /**
  * <p> Implementation of of {@link AspectWeaver} which uses proxies to advise objects. </p>
  *
  * @author Tyler Treat
- * @version 1.1.0.1 07/22/13
+ * @version 1.1.1 10/19/26
  * @since 1.0
  */
 public class ProxyingAspectWeaver implements AspectWeaver {
@@ -35,6 +39,7 @@ public class ProxyingAspectWeaver implements AspectWeaver {
     private PointcutBuilder mPointcutBuilder;
     private BeanFactory mBeanFactory;
     private AdvisedProxyFactory mProxyFactory;
+    private AopStartupMetrics mMetrics;
 
     /**
      * Constructs a new {@code ProxyingAspectWeaver} instance.
@@ -45,23 +50,89 @@ public class ProxyingAspectWeaver implements AspectWeaver {
      */
     public ProxyingAspectWeaver(BeanFactory beanFactory, PointcutBuilder pointcutBuilder,
                                 AdvisedProxyFactory proxyFactory) {
+        this(beanFactory, pointcutBuilder, proxyFactory, new AopStartupMetrics());
+    }
+
+    /**
+     * Constructs a new {@code ProxyingAspectWeaver} instance which records its pointcut build and proxy install
+     * phases in the given {@link AopStartupMetrics}.
+     *
+     * @param beanFactory     the {@link BeanFactory} the aspects are scoped to
+     * @param pointcutBuilder {@link PointcutBuilder} to use
+     * @param proxyFactory    the {@link AdvisedProxyFactory} to use
+     * @param metrics         the {@code AopStartupMetrics} to record to
+     */
+    public ProxyingAspectWeaver(BeanFactory beanFactory, PointcutBuilder pointcutBuilder,
+                                AdvisedProxyFactory proxyFactory, AopStartupMetrics metrics) {
         mPointcutBuilder = pointcutBuilder;
         mProxyFactory = proxyFactory;
         mBeanFactory = beanFactory;
+        mMetrics = metrics;
     }
 
     @Override
     public void weave(Context context, Set<AspectDefinition> aspects) {
-        for (Pointcut pointcut : mPointcutBuilder.build(aspects)) {
-            String beanName = pointcut.getBeanName();
-            Object bean = mBeanFactory.loadBean(beanName);
+        long start = mMetrics.start();
+        Collection<Pointcut> pointcuts = mPointcutBuilder.build(aspects);
+        mMetrics.stop(Phase.POINTCUT_BUILD, start);
+        advise(context, pointcuts);
+    }
+
+    @Override
+    public void weaveIncremental(Context context, Collection<String> beanNames) {
+        long start = mMetrics.start();
+        Collection<Pointcut> pointcuts = mPointcutBuilder.buildIncremental(beanNames);
+        mMetrics.stop(Phase.POINTCUT_BUILD, start);
+        advise(context, pointcuts);
+    }
 
-            // We are forcing bytecode instrumentation here as a workaround for cases where beans are being cast to
-            // concrete types.
-            AbstractProxy proxy = mProxyFactory.createProxy(context, bean, pointcut, true);
+    /**
+     * Builds the pointcuts for the given aspects without creating or installing any proxies and reports the advice
+     * which {@link #weave(Context, Set)} would apply to each bean. The pointcuts are built through
+     * {@link PointcutBuilder#preview(Collection)}, so a dry run doesn't affect the aspects later beans are woven with.
+     *
+     * @param aspects the {@link AspectDefinition}s to report on
+     * @return {@link WeavingReport}
+     */
+    public WeavingReport dryRun(Set<AspectDefinition> aspects) {
+        WeavingReport report = new WeavingReport();
+        for (Pointcut pointcut : mPointcutBuilder.preview(aspects)) {
+            // Proxies are always bytecode-instrumented by weave
+            report.addPointcut(pointcut, AdvisedDexMakerProxy.class);
+        }
+        return report;
+    }
+
+    private void advise(Context context, Collection<Pointcut> pointcuts) {
+        long start = mMetrics.start();
+        for (Pointcut pointcut : pointcuts) {
+            // Count join points before the proxy takes them from the pointcut
+            mMetrics.increment(Count.JOIN_POINTS, pointcut.getJoinPoints().size());
+            AbstractBeanDefinition beanDefinition = mBeanFactory.getBeanDefinition(pointcut.getBeanName());
+
+            // Proxies are bytecode-instrumented as a workaround for cases where beans are being cast to concrete
+            // types. If the factory supports it, the bean itself is only instantiated once the proxy is first
+            // materialized.
+            AbstractProxy proxy;
+            if (mProxyFactory instanceof DelegatingAdvisedProxyFactory)
+                proxy = ((DelegatingAdvisedProxyFactory) mProxyFactory).createLazyProxy(context, beanDefinition,
+                        pointcut);
+            else
+                proxy = mProxyFactory.createProxy(context, loadBean(pointcut), pointcut, true);
 
-            mBeanFactory.getBeanDefinitions().get(beanName).setBeanProxy(proxy);
+            beanDefinition.setBeanProxy(proxy);
         }
+        mMetrics.increment(Count.PROXIES, pointcuts.size());
+        mMetrics.stop(Phase.PROXY_INSTALL, start);
+    }
+
+    // Loads the advised bean and binds the pointcut's join points to it, since pointcuts are built without bean
+    // instances
+    private Object loadBean(Pointcut pointcut) {
+        Object bean = mBeanFactory.loadBean(pointcut.getBeanName());
+        for (JoinPoint joinPoint : pointcut.getJoinPoints())
+            joinPoint.setTarget(bean);
+        return bean;
     }
 
 }
@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+/**
+ * <p> Hierarchical timer wheel scheduling the expiry of cache entries. Each level of the wheel is an array of buckets
+ * covering a fixed span of time, from roughly a second per bucket on the lowest level up to days on the highest, and a
+ * timer is placed in the bucket of the lowest level whose range covers its delay. Scheduling and descheduling a timer
+ * therefore take constant time regardless of how many timers are pending. </p>
+ * <p> {@link #advance(long)} moves the wheel to the current time, visiting only the buckets whose spans have elapsed
+ * since the last advance. Timers in those buckets which are due are expired, and the rest are cascaded down to a
+ * lower level. Timers fire at bucket granularity, so callers must check the exact expiry when reading entries.
+ * Instances are not thread-safe. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+final class TimerWheel {
+
+    // Bucket spans of ~1.07s, ~1.14m, ~1.22h, ~1.63d and ~6.5d, in nanoseconds
+    private static final long[] SPANS = {1L << 30, 1L << 36, 1L << 42, 1L << 47, 1L << 49, 1L << 49};
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+    private static final int[] SHIFTS = new int[SPANS.length];
+
+    static {
+        for (int i = 0; i < SPANS.length; i++)
+            SHIFTS[i] = Long.numberOfTrailingZeros(SPANS[i]);
+    }
+
+    /**
+     * Receives timers when they expire.
+     */
+    interface Listener {
+
+        /**
+         * Called when the given timer expires. The timer has been descheduled and may be scheduled again.
+         *
+         * @param timer the expired {@link Timer}
+         */
+        void onExpired(Timer timer);
+
+    }
+
+    /**
+     * An entry scheduled to expire at a point in time.
+     */
+    static class Timer {
+
+        private long mTime;
+        private Timer mPrev;
+        private Timer mNext;
+
+        /**
+         * Returns the time the timer expires at.
+         *
+         * @return expiry time in nanoseconds
+         */
+        long getTime() {
+            return mTime;
+        }
+
+        /**
+         * Indicates if the timer is scheduled.
+         *
+         * @return {@code true} if scheduled, {@code false} if not
+         */
+        boolean isScheduled() {
+            return mPrev != null;
+        }
+
+    }
+
+    private final Timer[][] mWheel;
+    private final Listener mListener;
+    private long mTime;
+    private int mSize;
+
+    /**
+     * Creates a new {@code TimerWheel}.
+     *
+     * @param time     the current time in nanoseconds
+     * @param listener the {@link Listener} to notify of expired timers
+     */
+    TimerWheel(long time, Listener listener) {
+        mTime = time;
+        mListener = listener;
+        mWheel = new Timer[BUCKETS.length][];
+        for (int i = 0; i < BUCKETS.length; i++) {
+            mWheel[i] = new Timer[BUCKETS[i]];
+            for (int j = 0; j < BUCKETS[i]; j++) {
+                Timer sentinel = new Timer();
+                sentinel.mPrev = sentinel;
+                sentinel.mNext = sentinel;
+                mWheel[i][j] = sentinel;
+            }
+        }
+    }
+
+    /**
+     * Schedules the given timer to expire at the given time, descheduling it first if it's already scheduled.
+     *
+     * @param timer the {@link Timer} to schedule
+     * @param time  the time to expire the timer at, in nanoseconds
+     */
+    void schedule(Timer timer, long time) {
+        if (timer.isScheduled())
+            deschedule(timer);
+        timer.mTime = time;
+        link(findBucket(time), timer);
+        mSize++;
+    }
+
+    /**
+     * Removes the given timer from the wheel if it's scheduled.
+     *
+     * @param timer the {@link Timer} to deschedule
+     */
+    void deschedule(Timer timer) {
+        if (!timer.isScheduled())
+            return;
+        unlink(timer);
+        mSize--;
+    }
+
+    /**
+     * Advances the wheel to the given time, expiring every timer which is due.
+     *
+     * @param time the current time in nanoseconds
+     */
+    void advance(long time) {
+        long previous = mTime;
+        mTime = time;
+        for (int i = 0; i < BUCKETS.length; i++) {
+            long previousTicks = previous >>> SHIFTS[i];
+            long ticks = time >>> SHIFTS[i];
+            if (ticks <= previousTicks)
+                break;
+            expire(i, previousTicks, ticks - previousTicks);
+        }
+    }
+
+    /**
+     * Returns the time the wheel was last advanced to.
+     *
+     * @return time in nanoseconds
+     */
+    long getTime() {
+        return mTime;
+    }
+
+    /**
+     * Returns the number of scheduled timers.
+     *
+     * @return timer count
+     */
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * Deschedules every timer.
+     */
+    void clear() {
+        for (Timer[] level : mWheel) {
+            for (Timer sentinel : level) {
+                while (sentinel.mNext != sentinel)
+                    unlink(sentinel.mNext);
+            }
+        }
+        mSize = 0;
+    }
+
+    private void expire(int level, long previousTicks, long delta) {
+        Timer[] buckets = mWheel[level];
+        int mask = buckets.length - 1;
+        int count = (int) Math.min(delta + 1, buckets.length);
+        int start = (int) (previousTicks & mask);
+        for (int i = 0; i < count; i++) {
+            Timer sentinel = buckets[(start + i) & mask];
+            Timer timer = sentinel.mNext;
+            // Detach the bucket first, since timers may be rescheduled into it
+            sentinel.mPrev = sentinel;
+            sentinel.mNext = sentinel;
+            while (timer != sentinel) {
+                Timer next = timer.mNext;
+                timer.mPrev = null;
+                timer.mNext = null;
+                mSize--;
+                if (timer.mTime - mTime <= 0)
+                    mListener.onExpired(timer);
+                else
+                    schedule(timer, timer.mTime);
+                timer = next;
+            }
+        }
+    }
+
+    private Timer findBucket(long time) {
+        long duration = time - mTime;
+        int last = BUCKETS.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = time >>> SHIFTS[i];
+                return mWheel[i][(int) (ticks & (BUCKETS[i] - 1))];
+            }
+        }
+        return mWheel[last][0];
+    }
+
+    private static void link(Timer sentinel, Timer timer) {
+        timer.mPrev = sentinel.mPrev;
+        timer.mNext = sentinel;
+        sentinel.mPrev.mNext = timer;
+        sentinel.mPrev = timer;
+    }
+
+    private static void unlink(Timer timer) {
+        timer.mPrev.mNext = timer.mNext;
+        timer.mNext.mPrev = timer.mPrev;
+        timer.mPrev = null;
+        timer.mNext = null;
+    }
+
+}
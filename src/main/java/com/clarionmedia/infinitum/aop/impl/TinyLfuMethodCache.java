@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.aop.MethodCache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p> Bounded {@link MethodCache} using the W-TinyLFU policy, which retains frequently used values when recency alone
+ * would evict them, e.g. when a scan over many keys would otherwise flush an LRU cache. New values enter a small LRU
+ * window holding 1% of the capacity. A value evicted from the window competes for a place in the main region against
+ * the main region's next victim, and whichever has been accessed more often according to a {@link FrequencySketch}
+ * is kept. The main region is a segmented LRU: values accessed again while on probation are promoted to a protected
+ * segment holding 80% of the main region. </p>
+ * <p> Access is guarded by the cache's monitor, so it is safe to use from multiple threads. Evicted values are
+ * reported to an optional {@link MethodCache.EvictionListener} once the monitor has been released. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+public class TinyLfuMethodCache implements MethodCache {
+
+    private final String mName;
+    private final int mWindowCapacity;
+    private final int mMainCapacity;
+    private final int mProtectedCapacity;
+    private final FrequencySketch mSketch;
+    private final EvictionListener mListener;
+
+    // Access-ordered, so iteration starts at the least recently used value
+    private final LinkedHashMap<Object, Object> mWindow;
+    private final LinkedHashMap<Object, Object> mProbation;
+    private final LinkedHashMap<Object, Object> mProtected;
+
+    /**
+     * Creates a new {@code TinyLfuMethodCache}.
+     *
+     * @param name     the name of the cache
+     * @param capacity the maximum number of values to cache
+     */
+    public TinyLfuMethodCache(String name, int capacity) {
+        this(name, capacity, null);
+    }
+
+    /**
+     * Creates a new {@code TinyLfuMethodCache} which reports the values it evicts.
+     *
+     * @param name     the name of the cache
+     * @param capacity the maximum number of values to cache
+     * @param listener the {@link MethodCache.EvictionListener} to notify of evicted values, or {@code null}
+     */
+    public TinyLfuMethodCache(String name, int capacity, EvictionListener listener) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Cache capacity must be positive.");
+        mName = name;
+        mWindowCapacity = Math.max(1, capacity / 100);
+        mMainCapacity = capacity - mWindowCapacity;
+        mProtectedCapacity = mMainCapacity * 4 / 5;
+        mSketch = new FrequencySketch(capacity);
+        mListener = listener;
+        mWindow = new LinkedHashMap<Object, Object>(16, 0.75f, true);
+        mProbation = new LinkedHashMap<Object, Object>(16, 0.75f, true);
+        mProtected = new LinkedHashMap<Object, Object>(16, 0.75f, true);
+    }
+
+    @Override
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public synchronized Object get(Object key) {
+        mSketch.increment(key);
+        return access(key, null);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Entry evicted = null;
+        synchronized (this) {
+            mSketch.increment(key);
+            if (access(key, value) == null)
+                evicted = add(key, value);
+        }
+        notifyEvicted(evicted);
+    }
+
+    @Override
+    public Object putIfAbsent(Object key, Object value) {
+        Entry evicted = null;
+        Object existing;
+        synchronized (this) {
+            mSketch.increment(key);
+            existing = access(key, null);
+            if (existing == null)
+                evicted = add(key, value);
+        }
+        notifyEvicted(evicted);
+        return existing;
+    }
+
+    @Override
+    public synchronized void remove(Object key) {
+        if (mWindow.remove(key) == null && mProbation.remove(key) == null)
+            mProtected.remove(key);
+    }
+
+    @Override
+    public synchronized void clear() {
+        mWindow.clear();
+        mProbation.clear();
+        mProtected.clear();
+    }
+
+    @Override
+    public synchronized int size() {
+        return mWindow.size() + mProbation.size() + mProtected.size();
+    }
+
+    // Marks the key as used, replacing its value if one is given, and returns its previous value
+    private Object access(Object key, Object value) {
+        Object existing = mWindow.get(key);
+        if (existing != null) {
+            if (value != null)
+                mWindow.put(key, value);
+            return existing;
+        }
+        existing = mProtected.get(key);
+        if (existing != null) {
+            if (value != null)
+                mProtected.put(key, value);
+            return existing;
+        }
+        existing = mProbation.remove(key);
+        if (existing != null) {
+            mProtected.put(key, value != null ? value : existing);
+            if (mProtected.size() > mProtectedCapacity) {
+                Entry demoted = removeEldest(mProtected);
+                mProbation.put(demoted.mKey, demoted.mValue);
+            }
+        }
+        return existing;
+    }
+
+    // Adds a new value to the window and returns the value evicted to make room for it, if any
+    private Entry add(Object key, Object value) {
+        mWindow.put(key, value);
+        if (mWindow.size() <= mWindowCapacity)
+            return null;
+        Entry candidate = removeEldest(mWindow);
+        if (mProbation.size() + mProtected.size() < mMainCapacity) {
+            mProbation.put(candidate.mKey, candidate.mValue);
+            return null;
+        }
+        if (mMainCapacity == 0)
+            return candidate;
+        LinkedHashMap<Object, Object> victims = mProbation.isEmpty() ? mProtected : mProbation;
+        Object victim = victims.keySet().iterator().next();
+        if (mSketch.frequency(candidate.mKey) <= mSketch.frequency(victim))
+            return candidate;
+        Object evicted = victims.remove(victim);
+        mProbation.put(candidate.mKey, candidate.mValue);
+        return new Entry(victim, evicted);
+    }
+
+    private void notifyEvicted(Entry evicted) {
+        if (evicted != null && mListener != null)
+            mListener.onEviction(evicted.mKey, evicted.mValue);
+    }
+
+    private static Entry removeEldest(LinkedHashMap<Object, Object> map) {
+        Iterator<Map.Entry<Object, Object>> iterator = map.entrySet().iterator();
+        Map.Entry<Object, Object> eldest = iterator.next();
+        Entry removed = new Entry(eldest.getKey(), eldest.getValue());
+        iterator.remove();
+        return removed;
+    }
+
+    // A key and value removed from one of the regions
+    private static class Entry {
+
+        private final Object mKey;
+        private final Object mValue;
+
+        private Entry(Object key, Object value) {
+            mKey = key;
+            mValue = value;
+        }
+
+    }
+
+}
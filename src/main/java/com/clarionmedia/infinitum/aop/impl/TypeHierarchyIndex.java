@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p> Index of the type hierarchy of classes, mapping each class to all of its supertypes, i.e. the class itself, its
+ * superclasses and every interface it implements directly or indirectly. The supertypes of a class are computed the
+ * first time it's requested and shared for the rest of the process, so assignability checks resolve by lookup rather
+ * than by walking the hierarchy with {@link Class#isAssignableFrom(Class)}. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+public final class TypeHierarchyIndex {
+
+    private static final ConcurrentMap<Class<?>, Set<Class<?>>> sSupertypes =
+            new ConcurrentHashMap<Class<?>, Set<Class<?>>>();
+
+    private TypeHierarchyIndex() {
+    }
+
+    /**
+     * Returns all supertypes of the given class, including the class itself, ordered from the class towards {@link
+     * Object}.
+     *
+     * @param type the class to retrieve supertypes for
+     * @return unmodifiable {@link Set} of supertypes
+     */
+    public static Set<Class<?>> getSupertypes(Class<?> type) {
+        Set<Class<?>> supertypes = sSupertypes.get(type);
+        if (supertypes != null)
+            return supertypes;
+        Set<Class<?>> collected = new LinkedHashSet<Class<?>>();
+        for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+            collected.add(clazz);
+            addInterfaces(clazz, collected);
+        }
+        supertypes = Collections.unmodifiableSet(collected);
+        Set<Class<?>> existing = sSupertypes.putIfAbsent(type, supertypes);
+        return existing == null ? supertypes : existing;
+    }
+
+    private static void addInterfaces(Class<?> type, Set<Class<?>> collected) {
+        for (Class<?> iface : type.getInterfaces()) {
+            if (collected.add(iface))
+                addInterfaces(iface, collected);
+        }
+    }
+
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * <p> A resolved weaving plan, mapping each advised bean to its ordered advice and the methods it applies to. Plans
+ * are persisted in a compact binary format keyed by a fingerprint of the aspect and bean definitions they were
+ * resolved from, so that an unchanged application can skip pointcut matching on subsequent starts. Persisted plans
+ * are memory-mapped when read. </p>
+ * <p> Advice is referenced by its index in the deterministic order advice is merged in, and methods by their name and
+ * parameter type names. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+public class WeavingPlan {
+
+    private static final int MAGIC = 0x494e4650;
+    private static final int VERSION = 1;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private long mFingerprint;
+    private Map<String, List<Entry>> mBeans;
+
+    /**
+     * Creates a new, empty {@code WeavingPlan} with the given fingerprint.
+     *
+     * @param fingerprint the fingerprint of the definitions the plan is resolved from
+     */
+    public WeavingPlan(long fingerprint) {
+        mFingerprint = fingerprint;
+        mBeans = new LinkedHashMap<String, List<Entry>>();
+    }
+
+    /**
+     * Reads a persisted {@code WeavingPlan} from the given file.
+     *
+     * @param file the file to read
+     * @return {@code WeavingPlan} or {@code null} if the file doesn't exist or isn't a valid plan
+     * @throws IOException if the file cannot be read
+     */
+    public static WeavingPlan read(File file) throws IOException {
+        if (!file.isFile())
+            return null;
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = input.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        } finally {
+            input.close();
+        }
+    }
+
+    private static WeavingPlan read(ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                return null;
+            WeavingPlan plan = new WeavingPlan(buffer.getLong());
+            int beanCount = readCount(buffer);
+            for (int i = 0; i < beanCount; i++) {
+                String beanName = readString(buffer);
+                int entryCount = readCount(buffer);
+                for (int j = 0; j < entryCount; j++) {
+                    int advice = buffer.getInt();
+                    int parameterCount = buffer.getInt();
+                    if (parameterCount > buffer.remaining() / 4)
+                        return null;
+                    if (parameterCount < 0) {
+                        plan.addClassScope(beanName, advice);
+                        continue;
+                    }
+                    String methodName = readString(buffer);
+                    String[] parameterTypes = new String[parameterCount];
+                    for (int k = 0; k < parameterCount; k++)
+                        parameterTypes[k] = readString(buffer);
+                    plan.add(beanName, new Entry(advice, methodName, parameterTypes));
+                }
+            }
+            return plan;
+        } catch (BufferUnderflowException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the plan to the given file. The plan is written to a temporary file first and then renamed, so a
+     * partially written plan is never read.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(mFingerprint);
+            output.writeInt(mBeans.size());
+            for (Map.Entry<String, List<Entry>> bean : mBeans.entrySet()) {
+                writeString(output, bean.getKey());
+                output.writeInt(bean.getValue().size());
+                for (Entry entry : bean.getValue()) {
+                    output.writeInt(entry.mAdvice);
+                    if (entry.isClassScope()) {
+                        output.writeInt(-1);
+                        continue;
+                    }
+                    output.writeInt(entry.mParameterTypes.length);
+                    writeString(output, entry.mMethodName);
+                    for (String parameterType : entry.mParameterTypes)
+                        writeString(output, parameterType);
+                }
+            }
+        } finally {
+            output.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Unable to write weaving plan to '" + file + "'.");
+        }
+    }
+
+    /**
+     * Returns the fingerprint of the definitions the plan was resolved from.
+     *
+     * @return fingerprint
+     */
+    public long getFingerprint() {
+        return mFingerprint;
+    }
+
+    /**
+     * Returns the advised beans and their ordered advice.
+     *
+     * @return {@code Map} of bean names to plan entries
+     */
+    public Map<String, List<Entry>> getBeans() {
+        return mBeans;
+    }
+
+    /**
+     * Adds class-scope advice for the given bean.
+     *
+     * @param beanName the name of the advised bean
+     * @param advice   the index of the advice
+     */
+    public void addClassScope(String beanName, int advice) {
+        add(beanName, new Entry(advice, null, null));
+    }
+
+    /**
+     * Adds advice for a single method of the given bean.
+     *
+     * @param beanName the name of the advised bean
+     * @param advice   the index of the advice
+     * @param method   the advised {@link Method}
+     */
+    public void addMethod(String beanName, int advice, Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        String[] parameterTypes = new String[types.length];
+        for (int i = 0; i < types.length; i++)
+            parameterTypes[i] = types[i].getName();
+        add(beanName, new Entry(advice, method.getName(), parameterTypes));
+    }
+
+    private void add(String beanName, Entry entry) {
+        List<Entry> entries = mBeans.get(beanName);
+        if (entries == null) {
+            entries = new ArrayList<Entry>();
+            mBeans.put(beanName, entries);
+        }
+        entries.add(entry);
+    }
+
+    /**
+     * Folds the given value into a 64-bit FNV-1a fingerprint.
+     *
+     * @param fingerprint the fingerprint so far, or {@code 0} to start a new one
+     * @param value       the value to add
+     * @return updated fingerprint
+     */
+    public static long fingerprint(long fingerprint, String value) {
+        long hash = fingerprint == 0 ? FNV_OFFSET_BASIS : fingerprint;
+        String s = String.valueOf(value);
+        for (int i = 0; i < s.length(); i++) {
+            hash ^= s.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        // Separate values so adjacent strings can't collide by concatenation
+        hash ^= 0xff;
+        hash *= FNV_PRIME;
+        return hash;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes("UTF-8");
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    // Reads a count of items which each take at least four bytes, so a corrupt count can't exceed what remains
+    private static int readCount(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / 4)
+            throw new IllegalArgumentException("Invalid count " + count + ".");
+        return count;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining())
+            throw new IllegalArgumentException("Invalid string length " + length + ".");
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * A single advice applied to a bean, either to the whole bean or to one of its methods.
+     */
+    public static class Entry {
+
+        private int mAdvice;
+        private String mMethodName;
+        private String[] mParameterTypes;
+
+        private Entry(int advice, String methodName, String[] parameterTypes) {
+            mAdvice = advice;
+            mMethodName = methodName;
+            mParameterTypes = parameterTypes;
+        }
+
+        /**
+         * Returns the index of the advice in merge order.
+         *
+         * @return advice index
+         */
+        public int getAdvice() {
+            return mAdvice;
+        }
+
+        /**
+         * Indicates if the advice applies to every method of the bean.
+         *
+         * @return {@code true} if it's class scope, {@code false} if not
+         */
+        public boolean isClassScope() {
+            return mMethodName == null;
+        }
+
+        /**
+         * Resolves the advised method against the given advisable methods.
+         *
+         * @param methods the bean's advisable methods
+         * @return the advised {@link Method} or {@code null} if it no longer exists
+         */
+        public Method resolve(List<Method> methods) {
+            for (Method method : methods) {
+                if (!method.getName().equals(mMethodName))
+                    continue;
+                Class<?>[] types = method.getParameterTypes();
+                if (types.length != mParameterTypes.length)
+                    continue;
+                boolean matches = true;
+                for (int i = 0; i < types.length && matches; i++)
+                    matches = types[i].getName().equals(mParameterTypes[i]);
+                if (matches)
+                    return method;
+            }
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.aop.JoinPoint;
+import com.clarionmedia.infinitum.aop.Pointcut;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p> Report of the advice a weave would apply, produced by a dry run of {@link ProxyingAspectWeaver}. For each
+ * advised bean, the report lists the proxy type that would be used and every advised method along with the number of
+ * before, after and around advice applied to it and an estimated per-call overhead. </p>
+ * <p> Overhead is estimated from a micro-measurement, calibrated once per process, of the reflective calls and the
+ * advice lookup an advised call makes. Beans and methods are reported in a stable order and {@link #toJson()} renders
+ * the report as JSON, so reports can be diffed between releases. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+public class WeavingReport {
+
+    private static Calibration sCalibration;
+
+    private Calibration mCalibration;
+    private Map<String, BeanReport> mBeans;
+
+    /**
+     * Creates a new, empty {@code WeavingReport}, calibrating the overhead estimates if they haven't been calibrated
+     * yet.
+     */
+    public WeavingReport() {
+        mCalibration = getCalibration();
+        mBeans = new TreeMap<String, BeanReport>();
+    }
+
+    /**
+     * Adds the advice of the given {@link Pointcut} to the report. The {@code Pointcut's} join points are not
+     * consumed.
+     *
+     * @param pointcut   the {@code Pointcut} to report
+     * @param proxyClass the proxy class that would advise the bean
+     */
+    public void addPointcut(Pointcut pointcut, Class<?> proxyClass) {
+        Class<?> type = pointcut.getPointcutType();
+        boolean proxyable = !Modifier.isFinal(type.getModifiers());
+        BeanReport bean = new BeanReport(pointcut.getBeanName(), type, proxyable ? proxyClass.getSimpleName() : null);
+        List<Method> advisable = ClassMetadata.forClass(type).getAdvisableMethods();
+        for (JoinPoint joinPoint : pointcut.getJoinPoints()) {
+            if (joinPoint.isClassScope()) {
+                for (Method method : advisable)
+                    bean.addAdvice(method, joinPoint.getLocation());
+            } else {
+                bean.addAdvice(joinPoint.getMethod(), joinPoint.getLocation());
+            }
+        }
+        for (MethodReport method : bean.mMethods.values())
+            method.mOverheadNanos = mCalibration.estimate(method.getAdviceCount());
+        mBeans.put(bean.mName, bean);
+    }
+
+    /**
+     * Returns the reported beans, ordered by name.
+     *
+     * @return {@link Collection} of {@link BeanReport}
+     */
+    public Collection<BeanReport> getBeans() {
+        return mBeans.values();
+    }
+
+    /**
+     * Returns the measured cost of a single reflective call, which the overhead estimates are based on.
+     *
+     * @return cost in nanoseconds
+     */
+    public long getReflectiveCallNanos() {
+        return mCalibration.mReflectiveCallNanos;
+    }
+
+    /**
+     * Returns the measured cost of looking up the advice for a method, which the overhead estimates are based on.
+     *
+     * @return cost in nanoseconds
+     */
+    public long getAdviceLookupNanos() {
+        return mCalibration.mAdviceLookupNanos;
+    }
+
+    /**
+     * Renders the report as JSON.
+     *
+     * @return JSON report
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"calibration\":{\"reflectiveCallNanos\":").append(mCalibration.mReflectiveCallNanos)
+                .append(",\"adviceLookupNanos\":").append(mCalibration.mAdviceLookupNanos).append("},\"beans\":[");
+        boolean firstBean = true;
+        for (BeanReport bean : mBeans.values()) {
+            if (!firstBean)
+                json.append(',');
+            firstBean = false;
+            json.append("{\"name\":");
+            appendString(json, bean.mName);
+            json.append(",\"type\":");
+            appendString(json, bean.mType.getName());
+            json.append(",\"proxy\":");
+            appendString(json, bean.mProxyType);
+            json.append(",\"methods\":[");
+            boolean firstMethod = true;
+            for (MethodReport method : bean.mMethods.values()) {
+                if (!firstMethod)
+                    json.append(',');
+                firstMethod = false;
+                json.append("{\"method\":");
+                appendString(json, method.mSignature);
+                json.append(",\"before\":").append(method.mBefore).append(",\"after\":").append(method.mAfter)
+                        .append(",\"around\":").append(method.mAround).append(",\"estimatedOverheadNanos\":")
+                        .append(method.mOverheadNanos).append('}');
+            }
+            json.append("]}");
+        }
+        return json.append("]}").toString();
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+                json.append('\\').append(c);
+            else if (c < 0x20)
+                json.append(String.format("\\u%04x", (int) c));
+            else
+                json.append(c);
+        }
+        json.append('"');
+    }
+
+    private static synchronized Calibration getCalibration() {
+        if (sCalibration == null)
+            sCalibration = new Calibration();
+        return sCalibration;
+    }
+
+    /**
+     * The advice a dry run would apply to a single bean.
+     */
+    public static class BeanReport {
+
+        private String mName;
+        private Class<?> mType;
+        private String mProxyType;
+        private Map<String, MethodReport> mMethods;
+
+        private BeanReport(String name, Class<?> type, String proxyType) {
+            mName = name;
+            mType = type;
+            mProxyType = proxyType;
+            mMethods = new TreeMap<String, MethodReport>();
+        }
+
+        private void addAdvice(Method method, JoinPoint.AdviceLocation location) {
+            String signature = signature(method);
+            MethodReport report = mMethods.get(signature);
+            if (report == null) {
+                report = new MethodReport(signature);
+                mMethods.put(signature, report);
+            }
+            switch (location) {
+                case Before:
+                    report.mBefore++;
+                    break;
+                case After:
+                    report.mAfter++;
+                    break;
+                case Around:
+                    report.mAround++;
+                    break;
+            }
+        }
+
+        private static String signature(Method method) {
+            StringBuilder signature = new StringBuilder(method.getName()).append('(');
+            Class<?>[] types = method.getParameterTypes();
+            for (int i = 0; i < types.length; i++) {
+                if (i > 0)
+                    signature.append(',');
+                signature.append(types[i].getName());
+            }
+            return signature.append(')').toString();
+        }
+
+        /**
+         * Returns the name of the bean.
+         *
+         * @return bean name
+         */
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * Returns the type of the bean.
+         *
+         * @return bean type
+         */
+        public Class<?> getType() {
+            return mType;
+        }
+
+        /**
+         * Returns the simple name of the proxy class that would advise the bean.
+         *
+         * @return proxy class name or {@code null} if the bean's type can't be proxied
+         */
+        public String getProxyType() {
+            return mProxyType;
+        }
+
+        /**
+         * Returns the advised methods, ordered by signature.
+         *
+         * @return {@link Collection} of {@link MethodReport}
+         */
+        public Collection<MethodReport> getMethods() {
+            return mMethods.values();
+        }
+
+    }
+
+    /**
+     * The advice a dry run would apply to a single method.
+     */
+    public static class MethodReport {
+
+        private String mSignature;
+        private int mBefore;
+        private int mAfter;
+        private int mAround;
+        private long mOverheadNanos;
+
+        private MethodReport(String signature) {
+            mSignature = signature;
+        }
+
+        /**
+         * Returns the method's name and parameter types, e.g. {@code find(int,java.lang.String)}.
+         *
+         * @return method signature
+         */
+        public String getSignature() {
+            return mSignature;
+        }
+
+        /**
+         * Returns the number of before advice applied to the method.
+         *
+         * @return before advice count
+         */
+        public int getBeforeCount() {
+            return mBefore;
+        }
+
+        /**
+         * Returns the number of after advice applied to the method.
+         *
+         * @return after advice count
+         */
+        public int getAfterCount() {
+            return mAfter;
+        }
+
+        /**
+         * Returns the number of around advice applied to the method.
+         *
+         * @return around advice count
+         */
+        public int getAroundCount() {
+            return mAround;
+        }
+
+        /**
+         * Returns the total number of advice applied to the method.
+         *
+         * @return advice count
+         */
+        public int getAdviceCount() {
+            return mBefore + mAfter + mAround;
+        }
+
+        /**
+         * Returns the estimated overhead the advice adds to each call of the method.
+         *
+         * @return estimated overhead in nanoseconds
+         */
+        public long getEstimatedOverheadNanos() {
+            return mOverheadNanos;
+        }
+
+    }
+
+    /**
+     * Measures the cost of the operations an advised call makes: a cached advice lookup, a reflective call to the
+     * target and a reflective call for each advice.
+     */
+    private static class Calibration {
+
+        private static final int WARMUP_ITERATIONS = 20000;
+        private static final int ITERATIONS = 100000;
+
+        private long mReflectiveCallNanos;
+        private long mAdviceLookupNanos;
+
+        private Calibration() {
+            Method method;
+            try {
+                method = Calibration.class.getDeclaredMethod("noop");
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+            mReflectiveCallNanos = measureReflectiveCall(method);
+            mAdviceLookupNanos = measureLookup(method);
+        }
+
+        private long estimate(int adviceCount) {
+            return mAdviceLookupNanos + mReflectiveCallNanos * (adviceCount + 1);
+        }
+
+        private static long measureReflectiveCall(Method method) {
+            try {
+                for (int i = 0; i < WARMUP_ITERATIONS; i++)
+                    method.invoke(null);
+                long start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++)
+                    method.invoke(null);
+                return (System.nanoTime() - start) / ITERATIONS;
+            } catch (Exception e) {
+                return 0;
+            }
+        }
+
+        private static long measureLookup(Method method) {
+            ConcurrentMap<Method, Object> advice = new ConcurrentHashMap<Method, Object>();
+            advice.put(method, method);
+            int found = 0;
+            for (int i = 0; i < WARMUP_ITERATIONS; i++)
+                found += advice.get(method) == null ? 0 : 1;
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++)
+                found += advice.get(method) == null ? 0 : 1;
+            long elapsed = System.nanoTime() - start;
+            // Use the result so the lookups aren't optimized away
+            return found > 0 ? elapsed / ITERATIONS : 0;
+        }
+
+        @SuppressWarnings("unused")
+        private static void noop() {
+        }
+
+    }
+
+}
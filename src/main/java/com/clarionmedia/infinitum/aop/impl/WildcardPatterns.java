@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import java.util.regex.Pattern;
+
+/**
+ * <p> Compiles the wildcard patterns used in pointcut declarations into {@link Pattern} instances. </p>
+ *
+ * @author Tyler Treat
+ * @version 1.1.1 10/19/26
+ * @since 1.1.1
+ */
+final class WildcardPatterns {
+
+    private WildcardPatterns() {
+    }
+
+    /**
+     * Compiles a name pattern, such as a bean or method name, in which {@code *} matches any sequence of characters.
+     *
+     * @param pattern the name pattern to compile
+     * @return compiled {@code Pattern}
+     */
+    static Pattern compileName(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        int start = 0;
+        int star;
+        while ((star = pattern.indexOf('*', start)) != -1) {
+            appendLiteral(regex, pattern.substring(start, star));
+            regex.append(".*");
+            start = star + 1;
+        }
+        appendLiteral(regex, pattern.substring(start));
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * Compiles a type pattern, in which {@code *} matches any sequence of characters within a single package segment
+     * and {@code ..} matches any number of intermediate packages, e.g. {@code com.foo..*Service}.
+     *
+     * @param pattern the type pattern to compile
+     * @return compiled {@code Pattern}
+     */
+    static Pattern compileType(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (c == '*') {
+                regex.append("[^.]*");
+                i++;
+            } else if (pattern.startsWith("..", i)) {
+                regex.append("\\.(?:[^.]+\\.)*");
+                i += 2;
+            } else {
+                int next = i;
+                while (next < pattern.length() && pattern.charAt(next) != '*' && !pattern.startsWith("..", next))
+                    next++;
+                appendLiteral(regex, pattern.substring(i, next));
+                i = next;
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static void appendLiteral(StringBuilder regex, String literal) {
+        if (literal.length() > 0)
+            regex.append(Pattern.quote(literal));
+    }
+
+}
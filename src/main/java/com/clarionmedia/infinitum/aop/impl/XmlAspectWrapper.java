@@ -126,6 +126,10 @@ public class XmlAspectWrapper {
 				return PointcutType.Beans;
 			if (pointcut.equalsIgnoreCase(PointcutType.Within.name()))
 				return PointcutType.Within;
+			if (pointcut.equalsIgnoreCase(PointcutType.Expression.name()))
+				return PointcutType.Expression;
+			if (pointcut.equalsIgnoreCase(PointcutType.Annotation.name()))
+				return PointcutType.Annotation;
 			throw new InfinitumConfigurationException("Unknown pointcut type '" + pointcut + "'.");
 		}
 
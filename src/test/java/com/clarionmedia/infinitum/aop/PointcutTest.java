@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop;
+
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class PointcutTest {
+
+    @Test
+    public void testGetJoinPoints_insertionOrderTieBreak() {
+        // Setup
+        Pointcut pointcut = new Pointcut("foo", Object.class);
+        List<JoinPoint> first = new ArrayList<JoinPoint>();
+        List<JoinPoint> second = new ArrayList<JoinPoint>();
+        for (int i = 0; i < 20; i++) {
+            JoinPoint joinPoint = mock(JoinPoint.class);
+            // Interleave two precedences so the queue has to reorder them
+            int order = i % 2 == 0 ? 1 : 0;
+            when(joinPoint.getOrder()).thenReturn(order);
+            (order == 0 ? first : second).add(joinPoint);
+            pointcut.addJoinPoint(joinPoint);
+        }
+
+        // Run
+        List<JoinPoint> ordered = new ArrayList<JoinPoint>();
+        Queue<JoinPoint> joinPoints = pointcut.getJoinPoints();
+        while (!joinPoints.isEmpty())
+            ordered.add(joinPoints.remove());
+
+        // Verify
+        List<JoinPoint> expected = new ArrayList<JoinPoint>(first);
+        expected.addAll(second);
+        assertEquals("JoinPoints should be ordered by precedence and then by insertion order", expected, ordered);
+    }
+
+}
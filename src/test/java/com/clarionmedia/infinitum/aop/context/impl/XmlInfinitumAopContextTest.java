@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.context.impl;
+
+import com.clarionmedia.infinitum.aop.AopStartupMetrics.Count;
+import com.clarionmedia.infinitum.aop.AspectDefinition;
+import com.clarionmedia.infinitum.aop.annotation.Aspect;
+import com.clarionmedia.infinitum.aop.annotation.Cache;
+import com.clarionmedia.infinitum.aop.annotation.EvictCache;
+import com.clarionmedia.infinitum.aop.impl.AdvisedDexMakerProxy;
+import com.clarionmedia.infinitum.context.impl.XmlApplicationContext;
+import com.clarionmedia.infinitum.context.impl.XmlAspect;
+import com.clarionmedia.infinitum.di.AbstractBeanDefinition;
+import com.clarionmedia.infinitum.di.AbstractProxy;
+import com.clarionmedia.infinitum.di.BeanFactory;
+import com.clarionmedia.infinitum.di.XmlBean;
+import com.clarionmedia.infinitum.event.AbstractEvent;
+import com.clarionmedia.infinitum.event.annotation.Event;
+import com.xtremelabs.robolectric.Robolectric;
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.lang.reflect.Method;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class XmlInfinitumAopContextTest {
+
+    @Mock
+    private XmlApplicationContext mockParentContext;
+
+    @Mock
+    private BeanFactory mockBeanFactory;
+
+    @Mock
+    private AbstractBeanDefinition mockBeanDefinition;
+
+    private ReportService reportService;
+    private XmlInfinitumAopContext aopContext;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        reportService = new ReportService();
+        Map<String, String> appConfig = new HashMap<String, String>();
+        appConfig.put("methodCaching", "true");
+        appConfig.put("events", "true");
+        Map<String, AbstractBeanDefinition> beanDefinitions = new HashMap<String, AbstractBeanDefinition>();
+        beanDefinitions.put("reportService", mockBeanDefinition);
+        doReturn("reportService").when(mockBeanDefinition).getName();
+        doReturn(ReportService.class).when(mockBeanDefinition).getType();
+        doReturn(reportService).when(mockBeanDefinition).getNonProxiedBeanInstance();
+        when(mockBeanFactory.getBeanDefinitions()).thenReturn(beanDefinitions);
+        when(mockBeanFactory.getBeanDefinition("reportService")).thenReturn(mockBeanDefinition);
+        doReturn(ReportService.class).when(mockBeanFactory).getBeanType("reportService");
+        when(mockParentContext.getAppConfig()).thenReturn(appConfig);
+        when(mockParentContext.getBeanFactory()).thenReturn(mockBeanFactory);
+        when(mockParentContext.getXmlComponents()).thenReturn(Collections.<XmlBean>emptySet());
+        when(mockParentContext.getScannedComponents()).thenReturn(Collections.<Class<?>>emptySet());
+        aopContext = new XmlInfinitumAopContext(mockParentContext);
+    }
+
+    @Test
+    public void testPostProcess_onlyAnnotatedMethodsAdvised() throws Throwable {
+        // Setup
+        ArgumentCaptor<AbstractProxy> proxyCaptor = ArgumentCaptor.forClass(AbstractProxy.class);
+
+        // Run
+        aopContext.postProcess(Robolectric.application);
+
+        // Verify
+        verify(mockBeanDefinition).setBeanProxy(proxyCaptor.capture());
+        assertEquals("Each annotated method, and only those, should have a join point", 4,
+                aopContext.getStartupMetrics().getCount(Count.JOIN_POINTS));
+        AdvisedDexMakerProxy proxy = (AdvisedDexMakerProxy) proxyCaptor.getValue();
+        proxy.setTarget(reportService);
+        Method find = ReportService.class.getMethod("find", int.class);
+        Method count = ReportService.class.getMethod("count", int.class);
+        proxy.invoke(null, find, new Object[]{1});
+        proxy.invoke(null, find, new Object[]{1});
+        assertEquals("Cached method should be loaded once", 1, reportService.mFinds);
+        proxy.invoke(null, count, new Object[]{1});
+        proxy.invoke(null, count, new Object[]{1});
+        assertEquals("Unannotated method should not be cached", 2, reportService.mCounts);
+        verify(mockParentContext, never()).publishEvent(any(AbstractEvent.class));
+        proxy.invoke(null, ReportService.class.getMethod("save", String.class), new Object[]{"report"});
+        verify(mockParentContext).publishEvent(any(AbstractEvent.class));
+        proxy.invoke(null, ReportService.class.getMethod("clear"), new Object[0]);
+        proxy.invoke(null, find, new Object[]{1});
+        assertEquals("Evicted method should be loaded again", 2, reportService.mFinds);
+    }
+
+    @Test
+    public void testTransformAspects_order() throws Exception {
+        // Setup
+        Set<XmlBean> xmlComponents = new LinkedHashSet<XmlBean>();
+        xmlComponents.add(xmlAspect("zetaXmlAspect"));
+        xmlComponents.add(new XmlBean());
+        xmlComponents.add(xmlAspect("alphaXmlAspect"));
+        Set<Class<?>> scannedComponents = new LinkedHashSet<Class<?>>();
+        scannedComponents.add(ZetaAspect.class);
+        scannedComponents.add(ReportService.class);
+        scannedComponents.add(AlphaAspect.class);
+        Method transformAspects = XmlInfinitumAopContext.class.getDeclaredMethod("transformAspects", Set.class,
+                Collection.class);
+        transformAspects.setAccessible(true);
+
+        // Run
+        Set<?> aspects = (Set<?>) transformAspects.invoke(aopContext, xmlComponents, scannedComponents);
+
+        // Verify
+        List<String> names = new ArrayList<String>();
+        for (Object aspect : aspects)
+            names.add(((AspectDefinition) aspect).getName());
+        assertEquals("XML aspects should be in declaration order, followed by scanned aspects by class name",
+                Arrays.asList("zetaXmlAspect", "alphaXmlAspect", "alphaAspect", "zetaAspect"), names);
+        assertEquals("Scanned aspects should be removed from the scanned components",
+                Collections.<Class<?>>singleton(ReportService.class), scannedComponents);
+    }
+
+    private XmlAspect xmlAspect(String id) {
+        XmlAspect aspect = new XmlAspect();
+        aspect.setId(id);
+        aspect.setClassName(AlphaAspect.class.getName());
+        aspect.setAdvice(new ArrayList<XmlAspect.Advice>());
+        return aspect;
+    }
+
+    @Aspect("alphaAspect")
+    public static class AlphaAspect {
+    }
+
+    @Aspect("zetaAspect")
+    public static class ZetaAspect {
+    }
+
+    public static class ReportService {
+
+        private int mFinds;
+        private int mCounts;
+
+        @Cache("reports")
+        public String find(int id) {
+            mFinds++;
+            return "report" + id;
+        }
+
+        @Cache("reports")
+        public String findByName(String name) {
+            return name;
+        }
+
+        public int count(int id) {
+            return ++mCounts;
+        }
+
+        @Event("saved")
+        public void save(String report) {
+        }
+
+        @EvictCache("reports")
+        public void clear() {
+        }
+
+    }
+
+}
@@ -21,6 +21,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -37,6 +38,7 @@ import com.clarionmedia.infinitum.aop.JoinPoint;
 import com.clarionmedia.infinitum.aop.JoinPoint.AdviceLocation;
 import com.clarionmedia.infinitum.aop.Pointcut;
 import com.clarionmedia.infinitum.aop.ProceedingJoinPoint;
+import com.clarionmedia.infinitum.di.AbstractBeanDefinition;
 import com.xtremelabs.robolectric.Robolectric;
 import com.xtremelabs.robolectric.RobolectricTestRunner;
 
@@ -202,4 +204,46 @@ public class AdvisedDexMakerProxyTest {
 		assertNull("Proxy should have returned null", result);
 
 	}
+
+	@Test
+	public void testLazyTarget_bindsOnSetTarget() throws Throwable {
+
+		// Setup
+		Method method = target.getClass().getMethod("toString");
+		AbstractBeanDefinition mockBeanDefinition = mock(AbstractBeanDefinition.class);
+		Queue<JoinPoint> advice = new PriorityQueue<JoinPoint>();
+		advice.add(mockJoinPoint);
+		when(mockJoinPoint.getLocation()).thenReturn(AdviceLocation.Before);
+		when(mockJoinPoint.isClassScope()).thenReturn(true);
+		when(mockPointcut.getJoinPoints()).thenReturn(advice);
+		proxy = new AdvisedDexMakerProxy(Robolectric.application, mockBeanDefinition, mockPointcut);
+
+		// Run
+		proxy.setTarget(target);
+		Object result = proxy.invoke(proxy, method, new Object[0]);
+
+		// Verify
+		verify(mockBeanDefinition, never()).getNonProxiedBeanInstance();
+		verify(mockJoinPoint).setTarget(target);
+		assertEquals("Proxy should have returned target value", "42", result);
+
+	}
+
+	@Test
+	public void testLazyTarget_notResolvedOnConstruction() {
+
+		// Setup
+		AbstractBeanDefinition mockBeanDefinition = mock(AbstractBeanDefinition.class);
+		when(mockPointcut.getJoinPoints()).thenReturn(new PriorityQueue<JoinPoint>());
+
+		// Run
+		proxy = new AdvisedDexMakerProxy(Robolectric.application, mockBeanDefinition, mockPointcut);
+		AdvisedDexMakerProxy clone = proxy.clone();
+
+		// Verify
+		verify(mockBeanDefinition, never()).getNonProxiedBeanInstance();
+		assertNull("Target should not be resolved before the proxy is materialized", proxy.getTarget());
+		assertNull("Clone should not resolve the target", clone.getTarget());
+
+	}
 }
@@ -206,4 +206,54 @@ public class AdvisedJdkDynamicProxyTest {
 		assertNull("Proxy should have returned null", result);
 
 	}
+
+	@Test
+	public void testInvoke_adviceResolvedOncePerMethod() throws Throwable {
+
+		// Setup
+		Method method = List.class.getMethod("get", int.class);
+		Queue<JoinPoint> advice = new PriorityQueue<JoinPoint>();
+		advice.add(mockJoinPoint);
+		when(mockJoinPoint.getLocation()).thenReturn(AdviceLocation.Before);
+		when(mockJoinPoint.isClassScope()).thenReturn(false);
+		when(mockJoinPoint.getMethod()).thenReturn(ArrayList.class.getMethod("get", int.class));
+		when(mockPointcut.getJoinPoints()).thenReturn(advice);
+		proxy = new AdvisedJdkDynamicProxy(target, mockPointcut, interfaces);
+
+		// Run
+		for (int i = 0; i < 3; i++)
+			proxy.invoke(proxy, method, new Object[] { 0 });
+
+		// Verify
+		verify(mockJoinPoint, times(3)).invoke();
+		verify(mockJoinPoint, times(1)).isClassScope();
+
+	}
+
+	@Test
+	public void testInvoke_overloadsAdvisedSeparately() throws Throwable {
+
+		// Setup
+		Method removeIndex = List.class.getMethod("remove", int.class);
+		Method removeObject = List.class.getMethod("remove", Object.class);
+		Queue<JoinPoint> advice = new PriorityQueue<JoinPoint>();
+		advice.add(mockJoinPoint);
+		when(mockJoinPoint.getLocation()).thenReturn(AdviceLocation.Before);
+		when(mockJoinPoint.isClassScope()).thenReturn(false);
+		when(mockJoinPoint.getMethod()).thenReturn(ArrayList.class.getMethod("remove", int.class));
+		when(mockPointcut.getJoinPoints()).thenReturn(advice);
+		proxy = new AdvisedJdkDynamicProxy(target, mockPointcut, interfaces);
+
+		// Run
+		Object removed = proxy.invoke(proxy, removeObject, new Object[] { "missing" });
+		proxy.invoke(proxy, removeObject, new Object[] { "missing" });
+		Object result = proxy.invoke(proxy, removeIndex, new Object[] { 0 });
+
+		// Verify
+		verify(mockJoinPoint, times(1)).invoke();
+		verify(mockJoinPoint, times(2)).isClassScope();
+		assertEquals("Unadvised overload should have been invoked", Boolean.FALSE, removed);
+		assertEquals("Advised overload should have been invoked", "hello", result);
+
+	}
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.di.AbstractBeanDefinition;
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+@RunWith(RobolectricTestRunner.class)
+public class BeanPackageIndexTest {
+
+    private AbstractBeanDefinition arrayListBean;
+    private AbstractBeanDefinition hashMapBean;
+    private AbstractBeanDefinition builderBean;
+    private BeanPackageIndex packageIndex;
+
+    @Before
+    public void setup() {
+        arrayListBean = mockBean(ArrayList.class);
+        hashMapBean = mockBean(HashMap.class);
+        builderBean = mockBean(GenericPointcutBuilder.class);
+        packageIndex = new BeanPackageIndex(Arrays.asList(arrayListBean, hashMapBean, builderBean, arrayListBean));
+    }
+
+    @Test
+    public void testGetAll_deduplicates() {
+        // Verify
+        assertEquals("Index should contain each bean once", 3, packageIndex.getAll().size());
+    }
+
+    @Test
+    public void testFindWithin_package() {
+        // Run
+        List<AbstractBeanDefinition> beans = packageIndex.findWithin("java.util");
+
+        // Verify
+        assertEquals("Package should match both java.util beans", 2, beans.size());
+        assertTrue("Package should match ArrayList bean", beans.contains(arrayListBean));
+        assertTrue("Package should match HashMap bean", beans.contains(hashMapBean));
+    }
+
+    @Test
+    public void testFindWithin_partialSegment() {
+        // Run
+        List<AbstractBeanDefinition> beans = packageIndex.findWithin("com.clarionmedia.infinitum.aop.im");
+
+        // Verify
+        assertEquals("Partial segment should match as a prefix", 1, beans.size());
+        assertEquals("Partial segment should match builder bean", builderBean, beans.get(0));
+    }
+
+    @Test
+    public void testFindWithin_noMatch() {
+        // Run
+        List<AbstractBeanDefinition> beans = packageIndex.findWithin("java.util.concurrent");
+
+        // Verify
+        assertTrue("Unknown package should not match any beans", beans.isEmpty());
+    }
+
+    private AbstractBeanDefinition mockBean(Class<?> type) {
+        AbstractBeanDefinition bean = mock(AbstractBeanDefinition.class);
+        doReturn(type).when(bean).getType();
+        return bean;
+    }
+
+}
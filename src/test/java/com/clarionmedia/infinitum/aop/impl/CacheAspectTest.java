@@ -0,0 +1,361 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.aop.CacheConfiguration;
+import com.clarionmedia.infinitum.aop.JoinPoint;
+import com.clarionmedia.infinitum.aop.MethodCache;
+import com.clarionmedia.infinitum.aop.Pointcut;
+import com.clarionmedia.infinitum.aop.ProceedingJoinPoint;
+import com.clarionmedia.infinitum.aop.annotation.Cache;
+import com.clarionmedia.infinitum.aop.annotation.EvictCache;
+import com.clarionmedia.infinitum.aop.context.InfinitumAopContext;
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class CacheAspectTest {
+
+    @Mock
+    private ProceedingJoinPoint mockJoinPoint;
+
+    @Mock
+    private JoinPoint mockEvictJoinPoint;
+
+    @Mock
+    private InfinitumAopContext mockAopContext;
+
+    private ConcurrentCacheManager cacheManager;
+    private CacheAspect cacheAspect;
+
+    @Before
+    public void setup() throws NoSuchMethodException {
+        MockitoAnnotations.initMocks(this);
+        cacheManager = new ConcurrentCacheManager();
+        cacheAspect = new CacheAspect();
+        when(mockAopContext.getCacheManager()).thenReturn(cacheManager);
+        when(mockJoinPoint.getContext()).thenReturn(mockAopContext);
+        when(mockJoinPoint.getMethod()).thenReturn(Foo.class.getMethod("find", int.class));
+        when(mockJoinPoint.getArguments()).thenReturn(new Object[]{42});
+        when(mockEvictJoinPoint.getContext()).thenReturn(mockAopContext);
+        when(mockEvictJoinPoint.getMethod()).thenReturn(Foo.class.getMethod("save", String.class));
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        // Setup
+        when(mockJoinPoint.proceed()).thenReturn("foo");
+
+        // Run
+        Object first = cache(mockJoinPoint);
+        Object second = cache(mockJoinPoint);
+
+        // Verify
+        assertEquals("Result should be returned", "foo", first);
+        assertEquals("Cached result should be returned", "foo", second);
+        verify(mockJoinPoint, times(1)).proceed();
+    }
+
+    @Test
+    public void testCache_nullResult() throws Exception {
+        // Run
+        Object first = cache(mockJoinPoint);
+        Object second = cache(mockJoinPoint);
+
+        // Verify
+        assertNull("Null result should be returned", first);
+        assertNull("Cached null result should be returned", second);
+        verify(mockJoinPoint, times(1)).proceed();
+    }
+
+    @Test
+    public void testEvictCache() throws Exception {
+        // Setup
+        when(mockJoinPoint.proceed()).thenReturn("foo");
+        cache(mockJoinPoint);
+
+        // Run
+        evictCache(mockEvictJoinPoint);
+        cache(mockJoinPoint);
+
+        // Verify
+        verify(mockJoinPoint, times(2)).proceed();
+    }
+
+    @Test
+    public void testCache_annotationConfiguration() throws Exception {
+        // Setup
+        when(mockJoinPoint.proceed()).thenReturn("foo");
+
+        // Run
+        for (int i = 0; i < 5; i++) {
+            when(mockJoinPoint.getArguments()).thenReturn(new Object[]{i});
+            cache(mockJoinPoint);
+        }
+
+        // Verify
+        assertEquals("Cache should be bounded by the annotation's maxEntries", 2,
+                cacheManager.getCache("foos").size());
+    }
+
+    @Test(timeout = 5000)
+    public void testCache_coalescesConcurrentMisses() throws Exception {
+        // Setup
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger invocations = new AtomicInteger();
+        when(mockJoinPoint.proceed()).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                invocations.incrementAndGet();
+                started.countDown();
+                release.await();
+                return "foo";
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // Run
+        Future<Object> first = executor.submit(cacheCall());
+        started.await();
+        Future<Object> second = submitWaitingCall(executor);
+        release.countDown();
+
+        // Verify
+        assertEquals("Loading call should return the result", "foo", first.get());
+        assertEquals("Waiting call should return the same result", "foo", second.get());
+        assertEquals("Method should only be invoked once", 1, invocations.get());
+        executor.shutdown();
+    }
+
+    @Test(timeout = 5000)
+    public void testCache_propagatesLoadException() throws Exception {
+        // Setup
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final IllegalStateException exception = new IllegalStateException();
+        when(mockJoinPoint.proceed()).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                started.countDown();
+                release.await();
+                throw exception;
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // Run
+        Future<Object> first = executor.submit(cacheCall());
+        started.await();
+        Future<Object> second = submitWaitingCall(executor);
+        release.countDown();
+
+        // Verify
+        List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        futures.add(first);
+        futures.add(second);
+        for (Future<Object> future : futures) {
+            try {
+                future.get();
+                fail("Exception should be propagated");
+            } catch (ExecutionException e) {
+                assertSame("Callers should receive the method's exception", exception, e.getCause());
+            }
+        }
+        assertEquals("Failed result should not be cached", 0, cacheManager.getCache("foos").size());
+        executor.shutdown();
+    }
+
+    @Test(timeout = 5000)
+    public void testCache_reentrantLoad() throws Exception {
+        // Setup
+        final AtomicInteger invocations = new AtomicInteger();
+        when(mockJoinPoint.proceed()).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                if (invocations.incrementAndGet() == 1)
+                    return cache(mockJoinPoint);
+                return "foo";
+            }
+        });
+
+        // Run
+        Object result = cache(mockJoinPoint);
+
+        // Verify
+        assertEquals("Re-entrant call should invoke the method instead of waiting on its own load", "foo", result);
+        assertEquals("Method should be invoked by both calls", 2, invocations.get());
+    }
+
+    @Test
+    public void testCache_concurrentProxyCalls() throws Exception {
+        // Setup
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        when(mockAopContext.getCacheManager()).thenReturn(new ConcurrentCacheManager() {
+            @Override
+            public MethodCache getCache(String name, CacheConfiguration configuration) {
+                // Hold both calls until each has been bound to its arguments
+                try {
+                    barrier.await(2, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return super.getCache(name, configuration);
+            }
+        });
+        BasicProceedingJoinPoint joinPoint = new BasicProceedingJoinPoint(mockAopContext, cacheAspect,
+                CacheAspect.class.getDeclaredMethod("cache", ProceedingJoinPoint.class));
+        joinPoint.setClassScope(true);
+        Pointcut pointcut = new Pointcut("finder", FinderImpl.class);
+        pointcut.addJoinPoint(joinPoint);
+        Finder finder = (Finder) new AdvisedJdkDynamicProxy(new FinderImpl(), pointcut,
+                new Class<?>[]{Finder.class}).getProxy();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // Run
+        Future<String> first = executor.submit(findCall(finder, 1));
+        Future<String> second = executor.submit(findCall(finder, 2));
+
+        // Verify
+        assertEquals("First call should receive the result for its own arguments", "foo1", first.get());
+        assertEquals("Second call should receive the result for its own arguments", "foo2", second.get());
+        executor.shutdown();
+    }
+
+    private Callable<String> findCall(final Finder finder, final int id) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                return finder.find(id);
+            }
+        };
+    }
+
+    // Submits a cache call and returns once it is blocked waiting on the load already in flight
+    private Future<Object> submitWaitingCall(ExecutorService executor) throws InterruptedException {
+        final BlockingQueue<Thread> callers = new LinkedBlockingQueue<Thread>();
+        Future<Object> future = executor.submit(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                callers.add(Thread.currentThread());
+                return cache(mockJoinPoint);
+            }
+        });
+        Thread caller = callers.take();
+        while (!isWaitingOnLoad(caller))
+            Thread.yield();
+        return future;
+    }
+
+    private boolean isWaitingOnLoad(Thread thread) {
+        if (thread.getState() != Thread.State.TIMED_WAITING)
+            return false;
+        for (StackTraceElement element : thread.getStackTrace()) {
+            if (element.getClassName().equals(FutureTask.class.getName()) && element.getMethodName().equals("get"))
+                return true;
+        }
+        return false;
+    }
+
+    // Invokes the advice reflectively, the same way the weaver does
+    private Object cache(ProceedingJoinPoint joinPoint) throws Exception {
+        return invokeAdvice("cache", ProceedingJoinPoint.class, joinPoint);
+    }
+
+    private void evictCache(JoinPoint joinPoint) throws Exception {
+        invokeAdvice("evictCache", JoinPoint.class, joinPoint);
+    }
+
+    private Object invokeAdvice(String name, Class<?> joinPointType, JoinPoint joinPoint) throws Exception {
+        Method advice = CacheAspect.class.getDeclaredMethod(name, joinPointType);
+        advice.setAccessible(true);
+        try {
+            return advice.invoke(cacheAspect, joinPoint);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception)
+                throw (Exception) e.getCause();
+            throw (Error) e.getCause();
+        }
+    }
+
+    private Callable<Object> cacheCall() {
+        return new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return cache(mockJoinPoint);
+            }
+        };
+    }
+
+    public static class Foo {
+
+        @Cache(value = "foos", maxEntries = 2)
+        public String find(int id) {
+            return null;
+        }
+
+        @EvictCache("foos")
+        public void save(String foo) {
+        }
+
+    }
+
+    public interface Finder {
+
+        String find(int id);
+
+    }
+
+    public static class FinderImpl implements Finder {
+
+        @Cache("finders")
+        public String find(int id) {
+            return "foo" + id;
+        }
+
+    }
+
+}
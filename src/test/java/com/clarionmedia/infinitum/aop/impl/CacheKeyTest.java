@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@RunWith(RobolectricTestRunner.class)
+public class CacheKeyTest {
+
+    private Method findOne;
+    private Method findAll;
+    private Method findBy;
+
+    @Before
+    public void setup() throws NoSuchMethodException {
+        findOne = Foo.class.getMethod("findOne", String.class);
+        findAll = Foo.class.getMethod("findAll");
+        findBy = Foo.class.getMethod("findBy", String.class, int[].class);
+    }
+
+    @Test
+    public void testEquals() {
+        // Run
+        CacheKey first = CacheKey.forInvocation(findBy, new Object[]{"foo", new int[]{1, 2}});
+        CacheKey second = CacheKey.forInvocation(findBy, new Object[]{"foo", new int[]{1, 2}});
+
+        // Verify
+        assertEquals("Keys for equal invocations should be equal", first, second);
+        assertEquals("Keys for equal invocations should have equal hashes", first.getHash(), second.getHash());
+        assertEquals("Keys without arguments should be equal", CacheKey.forInvocation(findAll, null),
+                CacheKey.forInvocation(findAll, new Object[0]));
+    }
+
+    @Test
+    public void testEquals_collidingArguments() {
+        // Setup
+        assertEquals("Arguments should have colliding hash codes", "Aa".hashCode(), "BB".hashCode());
+
+        // Run
+        CacheKey first = CacheKey.forInvocation(findOne, new Object[]{"Aa"});
+        CacheKey second = CacheKey.forInvocation(findOne, new Object[]{"BB"});
+
+        // Verify
+        assertFalse("Keys for colliding arguments should not be equal", first.equals(second));
+    }
+
+    @Test
+    public void testEquals_differentMethods() {
+        // Run
+        CacheKey first = CacheKey.forInvocation(findOne, new Object[]{null});
+        CacheKey second = CacheKey.forInvocation(findAll, null);
+        CacheKey third = CacheKey.forInvocation(findBy, new Object[]{null, null});
+
+        // Verify
+        assertFalse("Keys for different methods should not be equal", first.equals(second));
+        assertFalse("Keys for different methods should not be equal", first.equals(third));
+    }
+
+    public static class Foo {
+
+        public String findOne(String id) {
+            return null;
+        }
+
+        public String findAll() {
+            return null;
+        }
+
+        public String findBy(String name, int[] ids) {
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.aop.annotation.Cache;
+import com.clarionmedia.infinitum.aop.annotation.EvictCache;
+import com.clarionmedia.infinitum.event.annotation.Event;
+import com.clarionmedia.infinitum.event.annotation.EventPayload;
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class ClassMetadataTest {
+
+    @Test
+    public void testForClass_shared() {
+        // Verify
+        assertSame("Metadata should be built once per class", ClassMetadata.forClass(CachedService.class),
+                ClassMetadata.forClass(CachedService.class));
+    }
+
+    @Test
+    public void testMethodAnnotations() throws Exception {
+        // Setup
+        ClassMetadata metadata = ClassMetadata.forClass(CachedService.class);
+        Method find = CachedService.class.getMethod("find", int.class);
+
+        // Run
+        List<Method> cached = metadata.getMethodsAnnotatedWith(Cache.class);
+
+        // Verify
+        assertEquals("Only one method should be cached", 1, cached.size());
+        assertEquals("Cached method should be find", find, cached.get(0));
+        assertEquals("Cache annotation should be returned", "users", metadata.getAnnotation(find, Cache.class).value());
+        assertTrue("Class should contain Event methods", metadata.containsMethodAnnotation(Event.class));
+        assertFalse("Class should not contain EvictCache methods", metadata.containsMethodAnnotation(EvictCache.class));
+    }
+
+    @Test
+    public void testParameterAnnotations() throws Exception {
+        // Setup
+        Method save = CachedService.class.getMethod("save", String.class);
+
+        // Run
+        Annotation[][] annotations = ClassMetadata.forClass(CachedService.class).getParameterAnnotations(save);
+
+        // Verify
+        assertEquals("Parameter annotation should be returned", EventPayload.class,
+                annotations[0][0].annotationType());
+    }
+
+    @Test
+    public void testAdvisableMethods() throws Exception {
+        // Run
+        List<Method> methods = ClassMetadata.forClass(CachedService.class).getAdvisableMethods();
+
+        // Verify
+        assertTrue("Public method should be advisable", methods.contains(CachedService.class.getMethod("find",
+                int.class)));
+        assertFalse("Final method should not be advisable", methods.contains(CachedService.class.getMethod("id")));
+        assertFalse("Static method should not be advisable", methods.contains(CachedService.class.getMethod(
+                "create")));
+    }
+
+    public static class CachedService {
+
+        @Cache("users")
+        public String find(int id) {
+            return null;
+        }
+
+        @Event("saved")
+        public void save(@EventPayload("name") String name) {
+        }
+
+        public final int id() {
+            return 0;
+        }
+
+        public static CachedService create() {
+            return new CachedService();
+        }
+
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.aop.CacheConfiguration;
+import com.clarionmedia.infinitum.aop.CacheConfiguration.EvictionPolicy;
+import com.clarionmedia.infinitum.aop.CacheProvider;
+import com.clarionmedia.infinitum.aop.MethodCache;
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class ConcurrentCacheManagerTest {
+
+    private static final int THREADS = 8;
+
+    private ConcurrentCacheManager cacheManager;
+
+    @Before
+    public void setup() {
+        cacheManager = new ConcurrentCacheManager();
+    }
+
+    @Test
+    public void testGetCache_concurrentCreation() throws Exception {
+        // Setup
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<MethodCache>> futures = new ArrayList<Future<MethodCache>>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(new Callable<MethodCache>() {
+                @Override
+                public MethodCache call() throws Exception {
+                    startLatch.await();
+                    return cacheManager.getCache("foo");
+                }
+            }));
+        }
+
+        // Run
+        startLatch.countDown();
+        MethodCache cache = futures.get(0).get();
+
+        // Verify
+        for (Future<MethodCache> future : futures)
+            assertSame("Every thread should receive the same cache", cache, future.get());
+        executor.shutdown();
+        assertEquals("There should be one cache", 1, cacheManager.getCacheNames().size());
+    }
+
+    @Test
+    public void testGetCache_bounded() {
+        // Setup
+        MethodCache cache = cacheManager.getCache("foo");
+
+        // Run
+        for (int i = 0; i < CacheConfiguration.DEFAULT_MAX_ENTRIES * 2; i++)
+            cache.put(i, i);
+
+        // Verify
+        assertEquals("Cache should not grow past its capacity", CacheConfiguration.DEFAULT_MAX_ENTRIES, cache.size());
+        assertNull("Least recently used value should be evicted", cache.get(0));
+    }
+
+    @Test
+    public void testGetCache_configured() {
+        // Setup
+        CacheProvider mockProvider = mock(CacheProvider.class);
+        when(mockProvider.createCache(anyString(), any(CacheConfiguration.class),
+                any(MethodCache.EvictionListener.class))).thenReturn(mock(MethodCache.class));
+        CacheConfiguration overrides = new CacheConfiguration();
+        overrides.setMaxEntries(500);
+        Map<String, CacheConfiguration> configurations = new HashMap<String, CacheConfiguration>();
+        configurations.put("foo", overrides);
+        cacheManager = new ConcurrentCacheManager(mockProvider, configurations);
+        CacheConfiguration requested = new CacheConfiguration();
+        requested.setMaxEntries(10);
+        requested.setEvictionPolicy(EvictionPolicy.LRU);
+
+        // Run
+        cacheManager.getCache("foo", requested);
+        cacheManager.getCache("bar", requested);
+
+        // Verify
+        ArgumentCaptor<CacheConfiguration> captor = ArgumentCaptor.forClass(CacheConfiguration.class);
+        verify(mockProvider).createCache(eq("foo"), captor.capture(), any(MethodCache.EvictionListener.class));
+        assertEquals("Configured settings should take precedence", 500, captor.getValue().getMaxEntries());
+        assertEquals("Settings which aren't configured should be kept", EvictionPolicy.LRU,
+                captor.getValue().getEvictionPolicy());
+        verify(mockProvider).createCache("bar", requested, null);
+    }
+
+    @Test
+    public void testGetCache_configuredZero() {
+        // Setup
+        CacheProvider mockProvider = mock(CacheProvider.class);
+        when(mockProvider.createCache(anyString(), any(CacheConfiguration.class),
+                any(MethodCache.EvictionListener.class))).thenReturn(mock(MethodCache.class));
+        CacheConfiguration overrides = new CacheConfiguration();
+        overrides.setMaxEntries(0);
+        overrides.setExpireAfterWrite(0, TimeUnit.SECONDS);
+        Map<String, CacheConfiguration> configurations = new HashMap<String, CacheConfiguration>();
+        configurations.put("foo", overrides);
+        cacheManager = new ConcurrentCacheManager(mockProvider, configurations);
+        CacheConfiguration requested = new CacheConfiguration();
+        requested.setMaxEntries(10);
+        requested.setExpireAfterWrite(60, TimeUnit.SECONDS);
+
+        // Run
+        cacheManager.getCache("foo", requested);
+
+        // Verify
+        ArgumentCaptor<CacheConfiguration> captor = ArgumentCaptor.forClass(CacheConfiguration.class);
+        verify(mockProvider).createCache(eq("foo"), captor.capture(), any(MethodCache.EvictionListener.class));
+        assertEquals("Configured zero should restore the default", CacheConfiguration.DEFAULT_MAX_ENTRIES,
+                captor.getValue().getMaxEntries());
+        assertFalse("Configured zero should disable expiry", captor.getValue().isExpiring());
+    }
+
+    @Test
+    public void testEvict() {
+        // Setup
+        cacheManager.getCache("foo").put(1, "foo");
+        cacheManager.getCache("bar").put(1, "bar");
+
+        // Run
+        cacheManager.evict("foo");
+        cacheManager.evict("baz");
+
+        // Verify
+        assertEquals("Evicted cache should be empty", 0, cacheManager.getCache("foo").size());
+        assertEquals("Other caches should not be evicted", "bar", cacheManager.getCache("bar").get(1));
+        assertEquals("Evicting a missing cache should not create it", 2, cacheManager.getCacheNames().size());
+    }
+
+}
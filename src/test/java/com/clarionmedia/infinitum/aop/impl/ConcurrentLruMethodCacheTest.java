@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class ConcurrentLruMethodCacheTest {
+
+    private static final int CAPACITY = 64;
+
+    private ConcurrentLruMethodCache cache;
+
+    @Before
+    public void setup() {
+        cache = new ConcurrentLruMethodCache("foo", CAPACITY);
+    }
+
+    @Test
+    public void testPut_evictsLeastRecentlyUsed() {
+        // Setup
+        for (int i = 0; i < CAPACITY; i++)
+            cache.put(i, i);
+        cache.get(0);
+
+        // Run
+        cache.put(CAPACITY, CAPACITY);
+
+        // Verify
+        assertEquals("Cache should not grow past its capacity", CAPACITY, cache.size());
+        assertEquals("Recently read value should be retained", 0, cache.get(0));
+        assertNull("Least recently used value should be evicted", cache.get(1));
+    }
+
+    @Test
+    public void testRemove() {
+        // Setup
+        cache.put(1, "foo");
+
+        // Run
+        cache.remove(1);
+        cache.put(2, "bar");
+
+        // Verify
+        assertNull("Removed value should not be returned", cache.get(1));
+        assertEquals("Remaining value should be returned", "bar", cache.get(2));
+        assertEquals("Cache should contain one value", 1, cache.size());
+    }
+
+    @Test
+    public void testClear() {
+        // Setup
+        for (int i = 0; i < CAPACITY; i++)
+            cache.put(i, i);
+
+        // Run
+        cache.clear();
+        for (int i = 0; i < CAPACITY; i++)
+            cache.put(-i - 1, i);
+
+        // Verify
+        assertEquals("Cleared values should not count towards capacity", CAPACITY, cache.size());
+        assertEquals("Value added after clearing should be returned", 0, cache.get(-1));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        for (int threads : new int[]{1, 4, 16, 64}) {
+            // Setup
+            cache = new ConcurrentLruMethodCache("foo", CAPACITY);
+
+            // Run
+            List<Integer> mismatches = runConcurrently(threads, 5000);
+
+            // Verify
+            assertTrue("Cached values should match their keys with " + threads + " threads", mismatches.isEmpty());
+            assertTrue("Cache should not grow past its capacity with " + threads + " threads",
+                    cache.size() <= CAPACITY);
+        }
+    }
+
+    private List<Integer> runConcurrently(int threads, final int operations) throws Exception {
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<Integer>>> futures = new ArrayList<Future<List<Integer>>>();
+        for (int i = 0; i < threads; i++) {
+            final long seed = i;
+            futures.add(executor.submit(new Callable<List<Integer>>() {
+                @Override
+                public List<Integer> call() throws Exception {
+                    Random random = new Random(seed);
+                    List<Integer> mismatches = new ArrayList<Integer>();
+                    startLatch.await();
+                    for (int j = 0; j < operations; j++) {
+                        int key = random.nextInt(CAPACITY * 4);
+                        Object value = cache.get(key);
+                        if (value == null)
+                            cache.put(key, key);
+                        else if (!value.equals(key))
+                            mismatches.add(key);
+                        if (j % 100 == 0)
+                            cache.remove(random.nextInt(CAPACITY * 4));
+                    }
+                    return mismatches;
+                }
+            }));
+        }
+        startLatch.countDown();
+        List<Integer> mismatches = new ArrayList<Integer>();
+        for (Future<List<Integer>> future : futures)
+            mismatches.addAll(future.get());
+        executor.shutdown();
+        return mismatches;
+    }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.aop.CacheConfiguration;
+import com.clarionmedia.infinitum.aop.CacheConfiguration.EvictionPolicy;
+import com.clarionmedia.infinitum.aop.CacheProvider;
+import com.clarionmedia.infinitum.aop.MethodCache;
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class ExpiringMethodCacheTest {
+
+    private long time;
+    private int delegateReads;
+    private MethodCache delegate;
+    private CacheProvider provider;
+
+    @Before
+    public void setup() {
+        time = 0;
+        delegateReads = 0;
+        provider = new CacheProvider() {
+            @Override
+            public MethodCache createCache(String name, CacheConfiguration configuration,
+                                           MethodCache.EvictionListener listener) {
+                delegate = new ReadCountingMethodCache(new DefaultCacheProvider().createCache(name, configuration,
+                        listener));
+                return delegate;
+            }
+        };
+    }
+
+    @Test
+    public void testGet_expireAfterWrite() {
+        // Setup
+        MethodCache cache = createCache(10, 0);
+        cache.put("foo", "bar");
+
+        // Run
+        advance(TimeUnit.SECONDS.toNanos(9));
+        Object beforeExpiry = cache.get("foo");
+        advance(TimeUnit.SECONDS.toNanos(1));
+        Object afterExpiry = cache.get("foo");
+
+        // Verify
+        assertEquals("Value should be returned before it expires", "bar", beforeExpiry);
+        assertNull("Value should not be returned once it expires", afterExpiry);
+        assertEquals("Expired value should be removed", 0, cache.size());
+    }
+
+    @Test
+    public void testGet_expireAfterAccess() {
+        // Setup
+        MethodCache cache = createCache(0, 10);
+        cache.put("foo", "bar");
+
+        // Run
+        for (int i = 0; i < 5; i++) {
+            advance(TimeUnit.SECONDS.toNanos(8));
+            assertEquals("Value should be returned while it's read", "bar", cache.get("foo"));
+        }
+        advance(TimeUnit.SECONDS.toNanos(10));
+
+        // Verify
+        assertNull("Value should expire once it isn't read", cache.get("foo"));
+    }
+
+    @Test
+    public void testCleanUp() {
+        // Setup
+        MethodCache cache = createCache(10, 0);
+        cache.put("foo", "bar");
+        advance(TimeUnit.SECONDS.toNanos(5));
+        cache.put("baz", "qux");
+
+        // Run
+        advance(TimeUnit.SECONDS.toNanos(7));
+        cache.get("baz");
+
+        // Verify
+        assertEquals("Expired value should be cleaned up without being read", 1, delegate.size());
+    }
+
+    @Test
+    public void testPut_replaced() {
+        // Setup
+        ExpiringMethodCache cache = createCache(10, 0);
+
+        // Run
+        for (int i = 0; i < 100; i++)
+            cache.put("foo", i);
+
+        // Verify
+        assertEquals("Replaced values should be descheduled", 1, cache.getScheduledCount());
+        assertEquals("Latest value should be returned", 99, cache.get("foo"));
+    }
+
+    @Test
+    public void testRemove() {
+        // Setup
+        ExpiringMethodCache cache = createCache(10, 0);
+        cache.put("foo", "bar");
+
+        // Run
+        cache.remove("foo");
+
+        // Verify
+        assertNull("Removed value should not be returned", cache.get("foo"));
+        assertEquals("Removed value should be descheduled", 0, cache.getScheduledCount());
+    }
+
+    @Test
+    public void testEviction_lru() {
+        // Setup
+        ExpiringMethodCache cache = createCache(EvictionPolicy.LRU, 3600, 0);
+
+        // Run
+        for (int i = 0; i < 100000; i++)
+            cache.put(i, i);
+
+        // Verify
+        assertTrue("Evicted values should be descheduled",
+                cache.getScheduledCount() <= CacheConfiguration.DEFAULT_MAX_ENTRIES);
+    }
+
+    @Test
+    public void testEviction_tinyLfu() {
+        // Setup
+        ExpiringMethodCache cache = createCache(EvictionPolicy.TINY_LFU, 3600, 0);
+
+        // Run
+        for (int i = 0; i < 100000; i++)
+            cache.put(i, i);
+
+        // Verify
+        assertTrue("Evicted values should be descheduled",
+                cache.getScheduledCount() <= CacheConfiguration.DEFAULT_MAX_ENTRIES);
+    }
+
+    @Test
+    public void testBookkeeping_tinyLfu() {
+        // Setup
+        ExpiringMethodCache cache = createCache(EvictionPolicy.TINY_LFU, 10, 0);
+
+        // Run
+        cache.put("foo", "bar");
+        cache.put("foo", "baz");
+        cache.put("bar", "baz");
+        cache.remove("bar");
+        advance(TimeUnit.SECONDS.toNanos(20));
+        cache.put("baz", "foo");
+        for (int i = 0; i < 10000; i++)
+            cache.put(i, i);
+
+        // Verify
+        assertEquals("Writes, removals, expiry and eviction should not read the decorated cache", 0, delegateReads);
+        assertNull("Expired value should have been removed", cache.get("foo"));
+        assertEquals("Only the read should have reached the decorated cache", 1, delegateReads);
+        assertTrue("Evicted values should be descheduled",
+                cache.getScheduledCount() <= CacheConfiguration.DEFAULT_MAX_ENTRIES);
+    }
+
+    @Test
+    public void testGet_maxExpiry() {
+        // Setup
+        time = Long.MAX_VALUE - TimeUnit.SECONDS.toNanos(1);
+        ExpiringMethodCache cache = createCache(EvictionPolicy.LRU, Long.MAX_VALUE, Long.MAX_VALUE);
+        cache.put("foo", "bar");
+
+        // Run
+        advance(TimeUnit.DAYS.toNanos(1));
+        Object value = cache.get("foo");
+
+        // Verify
+        assertEquals("Value should not expire when its expiry time overflows", "bar", value);
+    }
+
+    private void advance(long nanos) {
+        time += nanos;
+    }
+
+    private ExpiringMethodCache createCache(long expireAfterWrite, long expireAfterAccess) {
+        return createCache(EvictionPolicy.LRU, expireAfterWrite, expireAfterAccess);
+    }
+
+    private ExpiringMethodCache createCache(EvictionPolicy evictionPolicy, long expireAfterWrite,
+                                            long expireAfterAccess) {
+        CacheConfiguration configuration = new CacheConfiguration();
+        configuration.setEvictionPolicy(evictionPolicy);
+        configuration.setExpireAfterWrite(expireAfterWrite, TimeUnit.SECONDS);
+        configuration.setExpireAfterAccess(expireAfterAccess, TimeUnit.SECONDS);
+        return new ExpiringMethodCache("foo", configuration, provider) {
+            @Override
+            protected long now() {
+                return time;
+            }
+        };
+    }
+
+    private class ReadCountingMethodCache implements MethodCache {
+
+        private MethodCache mCache;
+
+        private ReadCountingMethodCache(MethodCache cache) {
+            mCache = cache;
+        }
+
+        @Override
+        public String getName() {
+            return mCache.getName();
+        }
+
+        @Override
+        public Object get(Object key) {
+            delegateReads++;
+            return mCache.get(key);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            mCache.put(key, value);
+        }
+
+        @Override
+        public Object putIfAbsent(Object key, Object value) {
+            return mCache.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void remove(Object key) {
+            mCache.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            mCache.clear();
+        }
+
+        @Override
+        public int size() {
+            return mCache.size();
+        }
+
+    }
+
+}
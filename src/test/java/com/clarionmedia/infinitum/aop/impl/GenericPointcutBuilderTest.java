@@ -0,0 +1,362 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.aop.AspectDefinition;
+import com.clarionmedia.infinitum.aop.AspectDefinition.AdviceDefinition;
+import com.clarionmedia.infinitum.aop.JoinPoint;
+import com.clarionmedia.infinitum.aop.JoinPoint.AdviceLocation;
+import com.clarionmedia.infinitum.aop.Pointcut;
+import com.clarionmedia.infinitum.aop.context.InfinitumAopContext;
+import com.clarionmedia.infinitum.di.AbstractBeanDefinition;
+import com.clarionmedia.infinitum.di.BeanFactory;
+import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class GenericPointcutBuilderTest {
+
+    @Mock
+    private InfinitumAopContext mockAopContext;
+
+    @Mock
+    private BeanFactory mockBeanFactory;
+
+    private Map<String, AbstractBeanDefinition> beanDefinitions;
+    private GenericPointcutBuilder pointcutBuilder;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        beanDefinitions = new HashMap<String, AbstractBeanDefinition>();
+        when(mockAopContext.getBeanFactory()).thenReturn(mockBeanFactory);
+        when(mockBeanFactory.getBeanDefinitions()).thenReturn(beanDefinitions);
+        registerBean("fooService", new FooService());
+        pointcutBuilder = new GenericPointcutBuilder(mockAopContext);
+    }
+
+    @Test
+    public void testBuild_expression() {
+        // Run
+        List<Pointcut> pointcuts = new ArrayList<Pointcut>(pointcutBuilder.build(aspects(
+                "execution(* *..*Service.find*(..))")));
+
+        // Verify
+        assertEquals("There should be one pointcut", 1, pointcuts.size());
+        Pointcut pointcut = pointcuts.get(0);
+        assertEquals("Pointcut should be for fooService", "fooService", pointcut.getBeanName());
+        assertEquals("Only the matching method should be advised", 1, pointcut.getJoinPoints().size());
+        JoinPoint joinPoint = pointcut.getJoinPoints().iterator().next();
+        assertEquals("Join point should advise findAll", "findAll", joinPoint.getMethod().getName());
+    }
+
+    @Test
+    public void testBuildIncremental() {
+        // Setup
+        pointcutBuilder.build(aspects("execution(* *..*Service.find*(..))"));
+        registerBean("barService", new BarService());
+
+        // Run
+        List<Pointcut> pointcuts = new ArrayList<Pointcut>(pointcutBuilder.buildIncremental(Arrays.asList(
+                "fooService", "barService")));
+
+        // Verify
+        assertEquals("Only the new bean should be matched", 1, pointcuts.size());
+        assertEquals("Pointcut should be for barService", "barService", pointcuts.get(0).getBeanName());
+        assertTrue("Matched bean should not be matched again",
+                pointcutBuilder.buildIncremental(Arrays.asList("barService")).isEmpty());
+    }
+
+    @Test
+    public void testPreview_retainsBuiltAspects() {
+        // Setup
+        pointcutBuilder.build(aspects("execution(* *..*Service.find*(..))"));
+        registerBean("barService", new BarService());
+
+        // Run
+        Collection<Pointcut> preview = pointcutBuilder.preview(aspects("beans", "foo*.save(*)"));
+        List<Pointcut> pointcuts = new ArrayList<Pointcut>(pointcutBuilder.buildIncremental(Arrays.asList(
+                "barService")));
+
+        // Verify
+        assertEquals("Preview should match the previewed aspects", 1, preview.size());
+        assertEquals("Preview should advise save", "save",
+                preview.iterator().next().getJoinPoints().peek().getMethod().getName());
+        assertEquals("Incremental build should still match the built aspects", 1, pointcuts.size());
+        assertEquals("Pointcut should be for barService", "barService", pointcuts.get(0).getBeanName());
+        assertEquals("Join point should advise findOne", "findOne",
+                pointcuts.get(0).getJoinPoints().peek().getMethod().getName());
+    }
+
+    @Test(expected = InfinitumRuntimeException.class)
+    public void testPreview_notRetained() {
+        // Setup
+        pointcutBuilder.preview(aspects("execution(* *..*Service.find*(..))"));
+
+        // Run
+        pointcutBuilder.buildIncremental(Arrays.asList("fooService"));
+    }
+
+    @Test
+    public void testBuild_beanNamePattern() {
+        // Setup
+        registerBean("barService", new BarService());
+        registerBean("fooDao", new FooService());
+
+        // Run
+        Collection<Pointcut> pointcuts = pointcutBuilder.build(aspects("beans", "*Service.find*(*)"));
+
+        // Verify
+        assertEquals("Pattern should match both services", 2, pointcuts.size());
+        for (Pointcut pointcut : pointcuts) {
+            assertTrue("Pattern should not match fooDao", pointcut.getBeanName().endsWith("Service"));
+            assertEquals("Only find methods should be advised", 1, pointcut.getJoinPoints().size());
+            assertTrue("Join point should advise a find method",
+                    pointcut.getJoinPoints().peek().getMethod().getName().startsWith("find"));
+        }
+    }
+
+    @Test
+    public void testBuild_deduplicatesJoinPoints() {
+        // Setup
+        Set<AspectDefinition> aspects = aspects("beans", "fooService.findAll()", "fooService.findAll()");
+        AspectDefinition aspect = aspects.iterator().next();
+        AdviceDefinition withinAdvice = new AdviceDefinition(aspect.getAdvice().get(0));
+        withinAdvice.setPointcutType("within");
+        withinAdvice.setPointcutValue(new String[]{FooService.class.getPackage().getName()});
+        aspect.setAdvice(Arrays.asList(aspect.getAdvice().get(0), withinAdvice));
+
+        // Run
+        Collection<Pointcut> pointcuts = pointcutBuilder.build(aspects);
+
+        // Verify
+        assertEquals("There should be one pointcut", 1, pointcuts.size());
+        Pointcut pointcut = pointcuts.iterator().next();
+        assertEquals("Method join points should merge into the class-scope join point", 1,
+                pointcut.getJoinPoints().size());
+        assertTrue("Remaining join point should be class scope", pointcut.getJoinPoints().peek().isClassScope());
+    }
+
+    @Test
+    public void testBuild_doesNotInstantiateBeans() {
+        // Run
+        Collection<Pointcut> pointcuts = pointcutBuilder.build(aspects("within", FooService.class.getPackage()
+                .getName()));
+
+        // Verify
+        assertEquals("There should be one pointcut", 1, pointcuts.size());
+        assertEquals("Pointcut should be typed from the bean definition", FooService.class,
+                pointcuts.iterator().next().getPointcutType());
+        verify(mockBeanFactory.getBeanDefinition("fooService"), never()).getNonProxiedBeanInstance();
+        verify(mockBeanFactory, never()).loadBean("fooService");
+    }
+
+    @Test
+    public void testBuild_withinMethodExclusion() {
+        // Run
+        Collection<Pointcut> pointcuts = pointcutBuilder.build(aspects("within", FooService.class.getPackage()
+                .getName(), "!*.save(String)"));
+
+        // Verify
+        assertEquals("There should be one pointcut", 1, pointcuts.size());
+        Pointcut pointcut = pointcuts.iterator().next();
+        assertTrue("Bean should be advised method by method", pointcut.getJoinPoints().size() > 1);
+        for (JoinPoint joinPoint : pointcut.getJoinPoints()) {
+            assertFalse("Join point should not be class scope", joinPoint.isClassScope());
+            assertFalse("Excluded method should not be advised", joinPoint.getMethod().getName().equals("save"));
+        }
+    }
+
+    @Test
+    public void testBuild_withinPackageExclusionCase() {
+        // Setup
+        registerBean("internalService", new InternalService());
+        String pkg = FooService.class.getPackage().getName();
+
+        // Run
+        Collection<Pointcut> pointcuts = pointcutBuilder.build(aspects("within", pkg, "!"
+                + GenericPointcutBuilderTest.class.getName() + "$internal"));
+
+        // Verify
+        assertEquals("A class whose name starts like the excluded package should not be excluded", 2,
+                pointcuts.size());
+    }
+
+    @Test
+    public void testBuild_beanExclusionOnly() {
+        // Setup
+        registerBean("barService", new BarService());
+
+        // Run
+        Collection<Pointcut> pointcuts = pointcutBuilder.build(aspects("beans", "!foo*"));
+
+        // Verify
+        assertEquals("Only the bean not excluded should be advised", 1, pointcuts.size());
+        Pointcut pointcut = pointcuts.iterator().next();
+        assertEquals("Pointcut should be for barService", "barService", pointcut.getBeanName());
+        assertTrue("Remaining bean should be advised as a whole", pointcut.getJoinPoints().peek().isClassScope());
+    }
+
+    @Test
+    public void testBuild_annotation() {
+        // Setup
+        registerBean("auditedService", new AuditedService());
+
+        // Run
+        Collection<Pointcut> pointcuts = pointcutBuilder.build(aspects("annotation", Audited.class.getName()));
+
+        // Verify
+        assertEquals("Only the bean with annotated methods should be advised", 1, pointcuts.size());
+        Pointcut pointcut = pointcuts.iterator().next();
+        assertEquals("Pointcut should be for auditedService", "auditedService", pointcut.getBeanName());
+        assertEquals("Only the annotated method should be advised", 1, pointcut.getJoinPoints().size());
+        JoinPoint joinPoint = pointcut.getJoinPoints().peek();
+        assertFalse("Join point should be method scope", joinPoint.isClassScope());
+        assertEquals("Join point should advise findAll", "findAll", joinPoint.getMethod().getName());
+    }
+
+    @Test
+    public void testBuild_annotationNoAnnotatedMethods() {
+        // Setup
+        registerBean("barService", new BarService());
+
+        // Run
+        Collection<Pointcut> pointcuts = pointcutBuilder.build(aspects("annotation", Audited.class.getName()));
+
+        // Verify
+        assertTrue("Beans without annotated methods should not be advised", pointcuts.isEmpty());
+    }
+
+    @Test
+    public void testBuildIncremental_annotation() {
+        // Setup
+        pointcutBuilder.build(aspects("annotation", Audited.class.getName()));
+        registerBean("auditedService", new AuditedService());
+        registerBean("barService", new BarService());
+
+        // Run
+        List<Pointcut> pointcuts = new ArrayList<Pointcut>(pointcutBuilder.buildIncremental(Arrays.asList(
+                "auditedService", "barService")));
+
+        // Verify
+        assertEquals("Only the new bean with annotated methods should be advised", 1, pointcuts.size());
+        assertEquals("Pointcut should be for auditedService", "auditedService", pointcuts.get(0).getBeanName());
+        assertEquals("Only the annotated method should be advised", 1, pointcuts.get(0).getJoinPoints().size());
+        assertEquals("Join point should advise findAll", "findAll",
+                pointcuts.get(0).getJoinPoints().peek().getMethod().getName());
+    }
+
+    @Test(expected = InfinitumRuntimeException.class)
+    public void testBuildIncremental_notBuilt() {
+        // Run
+        pointcutBuilder.buildIncremental(Arrays.asList("fooService"));
+    }
+
+    private Set<AspectDefinition> aspects(String expression) {
+        return aspects("expression", expression);
+    }
+
+    private Set<AspectDefinition> aspects(String pointcutType, String... values) {
+        AdviceDefinition advice = new AdviceDefinition();
+        advice.setType(AdviceLocation.Before);
+        advice.setPointcutType(pointcutType);
+        advice.setPointcutValue(values);
+        try {
+            advice.setMethod(TestAspect.class.getMethod("advise", JoinPoint.class));
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+        AspectDefinition aspect = new AspectDefinition();
+        aspect.setName("testAspect");
+        aspect.setType(TestAspect.class);
+        aspect.setAdvice(Arrays.asList(advice));
+        return new HashSet<AspectDefinition>(Arrays.asList(aspect));
+    }
+
+    private void registerBean(String name, Object bean) {
+        AbstractBeanDefinition beanDefinition = mock(AbstractBeanDefinition.class);
+        doReturn(name).when(beanDefinition).getName();
+        doReturn(bean.getClass()).when(beanDefinition).getType();
+        doReturn(bean).when(beanDefinition).getNonProxiedBeanInstance();
+        beanDefinitions.put(name, beanDefinition);
+        when(mockBeanFactory.getBeanDefinition(name)).thenReturn(beanDefinition);
+    }
+
+    public static class TestAspect {
+
+        public void advise(JoinPoint joinPoint) {
+        }
+
+    }
+
+    public static class FooService {
+
+        public List<String> findAll() {
+            return null;
+        }
+
+        public void save(String foo) {
+        }
+
+    }
+
+    public static class BarService {
+
+        public String findOne(int id) {
+            return null;
+        }
+
+    }
+
+    public static class InternalService {
+
+        public void run() {
+        }
+
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Audited {
+    }
+
+    public static class AuditedService {
+
+        @Audited
+        public List<String> findAll() {
+            return null;
+        }
+
+        public void save(String foo) {
+        }
+
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.di.AbstractBeanDefinition;
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+@RunWith(RobolectricTestRunner.class)
+public class MethodSpaceTest {
+
+    private MethodSpace space;
+
+    @Before
+    public void setup() {
+        space = new MethodSpace(Arrays.asList(bean("users", ArrayList.class), bean("cache", HashMap.class)));
+    }
+
+    @Test
+    public void testSelect_matchesPerMethodEvaluation() {
+        // Setup
+        String[] expressions = {"execution(* *..*List.add*(..))", "within(java.util.*List) || bean(cache)",
+                "!execution(* get(int)) && target(java.util.List+)", "!within(java.util.*Map)"};
+
+        for (String source : expressions) {
+            // Run
+            PointcutExpression expression = PointcutExpression.compile(source);
+            MethodSpace.Selection selection = expression.select(space);
+
+            // Verify
+            for (int method = 0; method < space.getMethodCount(); method++) {
+                AbstractBeanDefinition bean = space.getBean(space.getOwner(method));
+                assertEquals("Selected methods should match per-method evaluation of " + source,
+                        expression.matches(bean.getName(), bean.getType(), space.getMethod(method)),
+                        selection.getMethods().get(method));
+            }
+            for (int bean = 0; bean < space.getBeanCount(); bean++) {
+                AbstractBeanDefinition definition = space.getBean(bean);
+                assertEquals("Class-scope beans should match type evaluation of " + source,
+                        expression.matchesType(definition.getName(), definition.getType())
+                                == PointcutExpression.Match.ALWAYS, selection.getAlways().get(bean));
+            }
+        }
+    }
+
+    @Test
+    public void testSelect_cachesDesignators() {
+        // Run
+        MethodSpace.Selection first = PointcutExpression.compile("within(java.util.*)").select(space);
+        MethodSpace.Selection second = PointcutExpression.compile("within(java.util.*)").select(space);
+
+        // Verify
+        assertSame("Identical designators should share a selection", first, second);
+    }
+
+    @Test
+    public void testSelect_negatedExecutionIsNotClassScope() {
+        // Run
+        MethodSpace.Selection selection = PointcutExpression.compile("!execution(* size())").select(space);
+
+        // Verify
+        BitSet always = selection.getAlways();
+        assertTrue("Negated method pattern should not select whole beans", always.isEmpty());
+        List<String> names = new ArrayList<String>();
+        BitSet methods = selection.getMethods();
+        for (int method = methods.nextSetBit(0); method >= 0; method = methods.nextSetBit(method + 1))
+            names.add(space.getMethod(method).getName());
+        assertFalse("Excluded method should not be selected", names.contains("size"));
+        assertTrue("Other methods should be selected", names.contains("isEmpty"));
+    }
+
+    private AbstractBeanDefinition bean(String name, Class<?> type) {
+        AbstractBeanDefinition bean = mock(AbstractBeanDefinition.class);
+        doReturn(name).when(bean).getName();
+        doReturn(type).when(bean).getType();
+        return bean;
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class ParallelTasksTest {
+
+    @Test
+    public void testInvokeAll_belowThresholdRunsInline() {
+        // Setup
+        List<Callable<Thread>> tasks = new ArrayList<Callable<Thread>>();
+        for (int i = 0; i < ParallelTasks.MIN_PARALLEL_TASKS - 1; i++) {
+            tasks.add(new Callable<Thread>() {
+                @Override
+                public Thread call() {
+                    return Thread.currentThread();
+                }
+            });
+        }
+
+        // Run
+        List<Thread> threads = ParallelTasks.invokeAll(tasks, "record threads");
+
+        // Verify
+        assertEquals("Every task should have run", tasks.size(), threads.size());
+        for (Thread thread : threads)
+            assertSame("Small batches should run on the calling thread", Thread.currentThread(), thread);
+    }
+
+    @Test
+    public void testInvokeAll_resultOrder() {
+        // Setup
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for (int i = 0; i < 32; i++) {
+            final int index = i;
+            tasks.add(new Callable<Integer>() {
+                @Override
+                public Integer call() throws InterruptedException {
+                    // Finish later tasks first
+                    Thread.sleep(32 - index);
+                    return index;
+                }
+            });
+        }
+
+        // Run
+        List<Integer> results = ParallelTasks.invokeAll(tasks, "order results");
+
+        // Verify
+        assertEquals("Every task should have a result", tasks.size(), results.size());
+        for (int i = 0; i < results.size(); i++)
+            assertEquals("Results should be in task order", Integer.valueOf(i), results.get(i));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInvokeAll_runtimeExceptionRethrown() {
+        // Setup
+        List<Callable<Object>> tasks = tasks(new IllegalStateException("Task failed"));
+
+        // Run
+        ParallelTasks.invokeAll(tasks, "fail");
+    }
+
+    @Test
+    public void testInvokeAll_checkedExceptionWrapped() {
+        // Setup
+        IOException failure = new IOException("Task failed");
+        List<Callable<Object>> tasks = tasks(failure);
+
+        // Run
+        try {
+            ParallelTasks.invokeAll(tasks, "read files");
+        } catch (InfinitumRuntimeException e) {
+            // Verify
+            assertSame("Checked exception should be the cause", failure, e.getCause());
+            assertEquals("Message should name the operation", "Unable to read files.", e.getMessage());
+            return;
+        }
+        assertTrue("InfinitumRuntimeException should have been thrown", false);
+    }
+
+    // Returns enough tasks to run across the pool, the last of which throws the given exception
+    private List<Callable<Object>> tasks(final Exception failure) {
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for (int i = 0; i < ParallelTasks.MIN_PARALLEL_TASKS * 2; i++) {
+            final boolean fail = i == ParallelTasks.MIN_PARALLEL_TASKS * 2 - 1;
+            tasks.add(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    if (fail)
+                        throw failure;
+                    return null;
+                }
+            });
+        }
+        return tasks;
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.aop.impl.PointcutExpression.Match;
+import com.clarionmedia.infinitum.context.exception.InfinitumConfigurationException;
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class PointcutExpressionTest {
+
+    @Test
+    public void testExecution_wildcards() throws Exception {
+        // Setup
+        PointcutExpression expression = PointcutExpression.compile("execution(* java..*List.add*(..))");
+        Method add = ArrayList.class.getMethod("add", Object.class);
+        Method addAll = ArrayList.class.getMethod("addAll", int.class, Collection.class);
+        Method get = ArrayList.class.getMethod("get", int.class);
+
+        // Verify
+        assertEquals("Type should need method evaluation", Match.MAYBE,
+                expression.matchesType("list", ArrayList.class));
+        assertEquals("Non-matching type should be pruned", Match.NEVER,
+                expression.matchesType("map", HashMap.class));
+        assertTrue("Expression should match add", expression.matches("list", ArrayList.class, add));
+        assertTrue("Expression should match addAll", expression.matches("list", ArrayList.class, addAll));
+        assertFalse("Expression should not match get", expression.matches("list", ArrayList.class, get));
+    }
+
+    @Test
+    public void testExecution_parameters() throws Exception {
+        // Setup
+        PointcutExpression expression = PointcutExpression.compile("execution(boolean *.addAll(int, ..))");
+        Method addAllAt = ArrayList.class.getMethod("addAll", int.class, Collection.class);
+        Method addAll = ArrayList.class.getMethod("addAll", Collection.class);
+
+        // Verify
+        assertTrue("Expression should match addAll(int, Collection)",
+                expression.matches("list", ArrayList.class, addAllAt));
+        assertFalse("Expression should not match addAll(Collection)",
+                expression.matches("list", ArrayList.class, addAll));
+    }
+
+    @Test
+    public void testOperators() throws Exception {
+        // Setup
+        PointcutExpression expression = PointcutExpression.compile(
+                "(within(java.util.*) || bean(foo*)) && !execution(* *.size())");
+        Method size = ArrayList.class.getMethod("size");
+        Method clear = ArrayList.class.getMethod("clear");
+
+        // Verify
+        assertEquals("Bean outside package should not match", Match.NEVER,
+                expression.matchesType("bar", PointcutExpression.class));
+        assertEquals("Bean name should match", Match.MAYBE, expression.matchesType("fooBean",
+                PointcutExpression.class));
+        assertFalse("Negated method should not match", expression.matches("list", ArrayList.class, size));
+        assertTrue("Other methods should match", expression.matches("list", ArrayList.class, clear));
+    }
+
+    @Test
+    public void testBean_classScope() {
+        // Setup
+        PointcutExpression expression = PointcutExpression.compile("bean(*Dao) && within(java..*)");
+
+        // Verify
+        assertEquals("Type-only expression should match every method", Match.ALWAYS,
+                expression.matchesType("userDao", ArrayList.class));
+        assertEquals("Type-only expression should not match other beans", Match.NEVER,
+                expression.matchesType("userService", ArrayList.class));
+    }
+
+    @Test
+    public void testTarget_subtypes() {
+        // Setup
+        PointcutExpression subtypes = PointcutExpression.compile("target(java.util.Collection+)");
+        PointcutExpression exact = PointcutExpression.compile("target(java.util.Collection)");
+        PointcutExpression simpleName = PointcutExpression.compile("target(*List+) && !target(Vector+)");
+
+        // Verify
+        assertEquals("Implementation should match supertype pattern", Match.ALWAYS,
+                subtypes.matchesType("users", ArrayList.class));
+        assertEquals("Unrelated type should not match supertype pattern", Match.NEVER,
+                subtypes.matchesType("users", String.class));
+        assertEquals("Implementation should not match exact pattern", Match.NEVER,
+                exact.matchesType("users", ArrayList.class));
+        assertEquals("Simple name should match supertype pattern", Match.ALWAYS,
+                simpleName.matchesType("users", ArrayList.class));
+        assertEquals("Excluded subtype should not match", Match.NEVER,
+                simpleName.matchesType("users", java.util.Stack.class));
+    }
+
+    @Test(expected = InfinitumConfigurationException.class)
+    public void testCompile_unbalanced() {
+        // Run
+        PointcutExpression.compile("execution(* *(..)) && (bean(foo)");
+    }
+
+    @Test(expected = InfinitumConfigurationException.class)
+    public void testCompile_unknownDesignator() {
+        // Run
+        PointcutExpression.compile("call(* *(..))");
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.aop.*;
+import com.clarionmedia.infinitum.aop.AopStartupMetrics.Count;
+import com.clarionmedia.infinitum.aop.JoinPoint.AdviceLocation;
+import com.clarionmedia.infinitum.aop.context.InfinitumAopContext;
+import com.clarionmedia.infinitum.aop.impl.WeavingReport.BeanReport;
+import com.clarionmedia.infinitum.aop.impl.WeavingReport.MethodReport;
+import com.clarionmedia.infinitum.di.AbstractBeanDefinition;
+import com.clarionmedia.infinitum.di.AbstractProxy;
+import com.clarionmedia.infinitum.di.BeanFactory;
+import com.xtremelabs.robolectric.Robolectric;
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class ProxyingAspectWeaverTest {
+
+    @Mock
+    private BeanFactory mockBeanFactory;
+
+    @Mock
+    private PointcutBuilder mockPointcutBuilder;
+
+    @Mock
+    private DelegatingAdvisedProxyFactory mockProxyFactory;
+
+    @Mock
+    private AbstractBeanDefinition mockBeanDefinition;
+
+    @Mock
+    private AbstractProxy mockProxy;
+
+    private AopStartupMetrics metrics;
+    private ProxyingAspectWeaver weaver;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        metrics = new AopStartupMetrics();
+        weaver = new ProxyingAspectWeaver(mockBeanFactory, mockPointcutBuilder, mockProxyFactory, metrics);
+    }
+
+    @Test
+    public void testWeave_recordsMetrics() {
+        // Setup
+        Pointcut pointcut = new Pointcut("fooBean", Object.class);
+        pointcut.addJoinPoint(mock(JoinPoint.class));
+        pointcut.addJoinPoint(mock(JoinPoint.class));
+        when(mockPointcutBuilder.build(anyCollectionOf(AspectDefinition.class))).thenReturn(Arrays.asList(pointcut));
+        when(mockBeanFactory.getBeanDefinition("fooBean")).thenReturn(mockBeanDefinition);
+        when(mockProxyFactory.createLazyProxy(Robolectric.application, mockBeanDefinition, pointcut)).thenReturn(
+                mockProxy);
+
+        // Run
+        weaver.weave(Robolectric.application, Collections.<AspectDefinition>emptySet());
+
+        // Verify
+        verify(mockBeanDefinition).setBeanProxy(mockProxy);
+        verify(mockBeanFactory, never()).loadBean("fooBean");
+        assertEquals("Join points should be counted", 2, metrics.getCount(Count.JOIN_POINTS));
+        assertEquals("Proxies should be counted", 1, metrics.getCount(Count.PROXIES));
+    }
+
+    @Test
+    public void testWeave_otherProxyFactory() throws NoSuchMethodException {
+        // Setup
+        AdvisedProxyFactory proxyFactory = mock(AdvisedProxyFactory.class);
+        weaver = new ProxyingAspectWeaver(mockBeanFactory, mockPointcutBuilder, proxyFactory, metrics);
+        Pointcut pointcut = new Pointcut("fooBean", FooBean.class);
+        JoinPoint joinPoint = new BasicJoinPoint(mock(InfinitumAopContext.class), new FooBean(),
+                FooBean.class.getMethod("find", int.class), AdviceLocation.Before);
+        pointcut.addJoinPoint(joinPoint);
+        Object bean = new FooBean();
+        when(mockPointcutBuilder.build(anyCollectionOf(AspectDefinition.class))).thenReturn(Arrays.asList(pointcut));
+        when(mockBeanFactory.getBeanDefinition("fooBean")).thenReturn(mockBeanDefinition);
+        when(mockBeanFactory.loadBean("fooBean")).thenReturn(bean);
+        when(proxyFactory.createProxy(Robolectric.application, bean, pointcut, true)).thenReturn(mockProxy);
+
+        // Run
+        weaver.weave(Robolectric.application, Collections.<AspectDefinition>emptySet());
+
+        // Verify
+        verify(proxyFactory).createProxy(Robolectric.application, bean, pointcut, true);
+        verify(mockBeanDefinition).setBeanProxy(mockProxy);
+        assertSame("Join point should be bound to the loaded bean", bean, joinPoint.getTarget());
+    }
+
+    @Test
+    public void testDryRun() throws NoSuchMethodException {
+        // Setup
+        Pointcut pointcut = new Pointcut("fooBean", FooBean.class);
+        pointcut.addJoinPoint(joinPoint(AdviceLocation.Before, null));
+        pointcut.addJoinPoint(joinPoint(AdviceLocation.Around, FooBean.class.getMethod("find", int.class)));
+        when(mockPointcutBuilder.preview(anyCollectionOf(AspectDefinition.class))).thenReturn(Arrays.asList(pointcut));
+
+        // Run
+        WeavingReport report = weaver.dryRun(Collections.<AspectDefinition>emptySet());
+
+        // Verify
+        verify(mockPointcutBuilder, never()).build(anyCollectionOf(AspectDefinition.class));
+        verifyZeroInteractions(mockProxyFactory, mockBeanFactory);
+        assertEquals("Join points should not be consumed", 2, pointcut.getJoinPoints().size());
+        assertEquals("There should be one bean", 1, report.getBeans().size());
+        BeanReport bean = report.getBeans().iterator().next();
+        assertEquals("Bean should be bytecode-proxied", "AdvisedDexMakerProxy", bean.getProxyType());
+        Map<String, MethodReport> methods = new LinkedHashMap<String, MethodReport>();
+        for (MethodReport method : bean.getMethods())
+            methods.put(method.getSignature(), method);
+        assertTrue("Class-scope advice should apply to every method", methods.containsKey("save(java.lang.String)"));
+        assertEquals("find should have before and around advice", 2, methods.get("find(int)").getAdviceCount());
+        assertEquals("save should only have before advice", 1,
+                methods.get("save(java.lang.String)").getAdviceCount());
+        assertTrue("Overhead should grow with advice", methods.get("find(int)").getEstimatedOverheadNanos() >=
+                methods.get("save(java.lang.String)").getEstimatedOverheadNanos());
+        List<String> signatures = new ArrayList<String>(methods.keySet());
+        List<String> sorted = new ArrayList<String>(signatures);
+        Collections.sort(sorted);
+        assertEquals("Methods should be ordered by signature", sorted, signatures);
+        assertTrue("Report should be rendered as JSON", report.toJson().contains(
+                "{\"method\":\"save(java.lang.String)\",\"before\":1,\"after\":0,\"around\":0,"));
+    }
+
+    private JoinPoint joinPoint(AdviceLocation location, Method method) {
+        JoinPoint joinPoint = mock(JoinPoint.class);
+        when(joinPoint.getLocation()).thenReturn(location);
+        when(joinPoint.isClassScope()).thenReturn(method == null);
+        when(joinPoint.getMethod()).thenReturn(method);
+        return joinPoint;
+    }
+
+    public static class FooBean {
+
+        public String find(int id) {
+            return null;
+        }
+
+        public void save(String foo) {
+        }
+
+    }
+
+}
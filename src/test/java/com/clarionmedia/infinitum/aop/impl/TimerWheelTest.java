@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class TimerWheelTest {
+
+    private List<TimerWheel.Timer> expired;
+    private TimerWheel timerWheel;
+
+    @Before
+    public void setup() {
+        expired = new ArrayList<TimerWheel.Timer>();
+        timerWheel = new TimerWheel(0, new TimerWheel.Listener() {
+            @Override
+            public void onExpired(TimerWheel.Timer timer) {
+                expired.add(timer);
+            }
+        });
+    }
+
+    @Test
+    public void testAdvance() {
+        // Setup
+        TimerWheel.Timer seconds = schedule(TimeUnit.SECONDS.toNanos(5));
+        TimerWheel.Timer minutes = schedule(TimeUnit.MINUTES.toNanos(10));
+        TimerWheel.Timer hours = schedule(TimeUnit.HOURS.toNanos(3));
+        TimerWheel.Timer days = schedule(TimeUnit.DAYS.toNanos(10));
+
+        // Run
+        timerWheel.advance(TimeUnit.SECONDS.toNanos(7));
+
+        // Verify
+        assertEquals("Only the timer due should expire", 1, expired.size());
+        assertTrue("Timer due in seconds should expire", expired.contains(seconds));
+        assertEquals("Timers not due should remain scheduled", 3, timerWheel.size());
+
+        // Run
+        timerWheel.advance(TimeUnit.MINUTES.toNanos(11));
+        timerWheel.advance(TimeUnit.HOURS.toNanos(4));
+
+        // Verify
+        assertTrue("Timer due in minutes should expire", expired.contains(minutes));
+        assertTrue("Timer due in hours should expire", expired.contains(hours));
+        assertFalse("Timer due in days should not expire", expired.contains(days));
+
+        // Run
+        timerWheel.advance(TimeUnit.DAYS.toNanos(11));
+
+        // Verify
+        assertTrue("Timer due in days should expire", expired.contains(days));
+        assertEquals("No timers should remain scheduled", 0, timerWheel.size());
+    }
+
+    @Test
+    public void testAdvance_incrementally() {
+        // Setup
+        TimerWheel.Timer timer = schedule(TimeUnit.MINUTES.toNanos(3));
+
+        // Run
+        for (long time = 0; time < TimeUnit.MINUTES.toNanos(3); time += TimeUnit.MILLISECONDS.toNanos(500))
+            timerWheel.advance(time);
+
+        // Verify
+        assertTrue("Timer should not expire early", expired.isEmpty());
+        timerWheel.advance(TimeUnit.MINUTES.toNanos(3) + TimeUnit.SECONDS.toNanos(2));
+        assertTrue("Timer should expire once cascaded to its bucket", expired.contains(timer));
+    }
+
+    @Test
+    public void testDeschedule() {
+        // Setup
+        TimerWheel.Timer timer = schedule(TimeUnit.SECONDS.toNanos(5));
+
+        // Run
+        timerWheel.deschedule(timer);
+        timerWheel.advance(TimeUnit.SECONDS.toNanos(10));
+
+        // Verify
+        assertTrue("Descheduled timer should not expire", expired.isEmpty());
+        assertFalse("Timer should not be scheduled", timer.isScheduled());
+    }
+
+    private TimerWheel.Timer schedule(long time) {
+        TimerWheel.Timer timer = new TimerWheel.Timer();
+        timerWheel.schedule(timer, time);
+        return timer;
+    }
+
+}
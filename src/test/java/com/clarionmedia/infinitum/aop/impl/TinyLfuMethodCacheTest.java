@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.clarionmedia.infinitum.aop.MethodCache;
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class TinyLfuMethodCacheTest {
+
+    private static final int CAPACITY = 100;
+    private static final int KEYS = 10000;
+    private static final int REQUESTS = 200000;
+
+    @Test
+    public void testPut_bounded() {
+        // Setup
+        TinyLfuMethodCache cache = new TinyLfuMethodCache("foo", CAPACITY);
+
+        // Run
+        for (int i = 0; i < CAPACITY * 3; i++)
+            cache.put(i, i);
+
+        // Verify
+        assertTrue("Cache should not grow past its capacity", cache.size() <= CAPACITY);
+    }
+
+    @Test
+    public void testGet_frequentKeySurvivesScan() {
+        // Setup
+        TinyLfuMethodCache cache = new TinyLfuMethodCache("foo", CAPACITY);
+        cache.put("hot", "value");
+        for (int i = 0; i < 10; i++)
+            cache.get("hot");
+
+        // Run
+        for (int i = 0; i < CAPACITY * 10; i++)
+            cache.put(i, i);
+
+        // Verify
+        assertEquals("Frequently used value should not be flushed by a scan", "value", cache.get("hot"));
+    }
+
+    @Test
+    public void testHitRate_zipf() {
+        // Setup
+        int[] trace = zipfTrace(new Random(42), REQUESTS);
+
+        // Run
+        double tinyLfu = hitRate(new TinyLfuMethodCache("foo", CAPACITY), trace);
+        double lru = hitRate(new ConcurrentLruMethodCache("foo", CAPACITY), trace);
+
+        // Verify
+        assertTrue("W-TinyLFU hit rate " + tinyLfu + " should exceed LRU hit rate " + lru, tinyLfu > lru);
+    }
+
+    @Test
+    public void testHitRate_scan() {
+        // Setup
+        Random random = new Random(42);
+        int[] trace = new int[REQUESTS];
+        int scanKey = KEYS;
+        for (int i = 0; i < REQUESTS; i++) {
+            // Every 1000 requests, a listing touches 500 keys which are never requested again
+            if (i % 1000 < 500)
+                trace[i] = zipfTrace(random, 1)[0];
+            else
+                trace[i] = scanKey++;
+        }
+
+        // Run
+        double tinyLfu = hitRate(new TinyLfuMethodCache("foo", CAPACITY), trace);
+        double lru = hitRate(new ConcurrentLruMethodCache("foo", CAPACITY), trace);
+
+        // Verify
+        assertTrue("W-TinyLFU hit rate " + tinyLfu + " should exceed LRU hit rate " + lru + " by a quarter",
+                tinyLfu > lru * 1.25);
+    }
+
+    private static double hitRate(MethodCache cache, int[] trace) {
+        int hits = 0;
+        for (int key : trace) {
+            if (cache.get(key) != null)
+                hits++;
+            else
+                cache.put(key, key);
+        }
+        return (double) hits / trace.length;
+    }
+
+    private static double[] sZipfCdf;
+
+    // Keys drawn with probability proportional to 1 / rank
+    private static int[] zipfTrace(Random random, int length) {
+        if (sZipfCdf == null) {
+            double[] cdf = new double[KEYS];
+            double sum = 0;
+            for (int i = 0; i < KEYS; i++) {
+                sum += 1.0 / (i + 1);
+                cdf[i] = sum;
+            }
+            for (int i = 0; i < KEYS; i++)
+                cdf[i] /= sum;
+            sZipfCdf = cdf;
+        }
+        int[] trace = new int[length];
+        for (int i = 0; i < length; i++) {
+            int index = Arrays.binarySearch(sZipfCdf, random.nextDouble());
+            trace[i] = index >= 0 ? index : Math.min(-index - 1, KEYS - 1);
+        }
+        return trace;
+    }
+
+}
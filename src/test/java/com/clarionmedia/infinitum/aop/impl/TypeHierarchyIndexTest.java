@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class TypeHierarchyIndexTest {
+
+    @Test
+    public void testGetSupertypes() {
+        // Run
+        Set<Class<?>> supertypes = TypeHierarchyIndex.getSupertypes(ArrayList.class);
+
+        // Verify
+        assertTrue("Type should be its own supertype", supertypes.contains(ArrayList.class));
+        assertTrue("Superclass should be included", supertypes.contains(AbstractList.class));
+        assertTrue("Indirect interface should be included", supertypes.contains(Collection.class));
+        assertTrue("Object should be included", supertypes.contains(Object.class));
+        assertSame("Supertypes should be computed once per type", supertypes,
+                TypeHierarchyIndex.getSupertypes(ArrayList.class));
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2013 Clarion Media, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarionmedia.infinitum.aop.impl;
+
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class WeavingPlanTest {
+
+    private File planFile;
+
+    @Before
+    public void setup() throws Exception {
+        planFile = File.createTempFile("weaving-plan", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        planFile.delete();
+    }
+
+    @Test
+    public void testWriteRead() throws Exception {
+        // Setup
+        Method addAll = ArrayList.class.getMethod("addAll", int.class, java.util.Collection.class);
+        long fingerprint = WeavingPlan.fingerprint(WeavingPlan.fingerprint(0, "fooBean"), "com.foo.Bar");
+        WeavingPlan plan = new WeavingPlan(fingerprint);
+        plan.addClassScope("fooBean", 0);
+        plan.addMethod("fooBean", 2, addAll);
+        plan.addMethod("barBean", 1, addAll);
+
+        // Run
+        plan.write(planFile);
+        WeavingPlan read = WeavingPlan.read(planFile);
+
+        // Verify
+        assertNotNull("Plan should be read", read);
+        assertEquals("Fingerprint should be retained", fingerprint, read.getFingerprint());
+        assertEquals("Bean order should be retained", Arrays.asList("fooBean", "barBean"),
+                new ArrayList<String>(read.getBeans().keySet()));
+        List<WeavingPlan.Entry> entries = read.getBeans().get("fooBean");
+        assertEquals("Advice order should be retained", 2, entries.size());
+        assertTrue("First entry should be class scope", entries.get(0).isClassScope());
+        assertEquals("Advice index should be retained", 2, entries.get(1).getAdvice());
+        assertEquals("Method should resolve", addAll, entries.get(1).resolve(Arrays.asList(
+                ArrayList.class.getMethods())));
+    }
+
+    @Test
+    public void testRead_invalid() throws Exception {
+        // Setup
+        FileOutputStream output = new FileOutputStream(planFile);
+        output.write(new byte[]{1, 2, 3});
+        output.close();
+
+        // Verify
+        assertNull("Invalid plan should not be read", WeavingPlan.read(planFile));
+        assertNull("Missing plan should not be read", WeavingPlan.read(new File(planFile.getPath() + ".missing")));
+    }
+
+    @Test
+    public void testRead_corruptCounts() throws Exception {
+        // Setup
+        WeavingPlan plan = new WeavingPlan(1);
+        plan.addMethod("fooBean", 0, ArrayList.class.getMethod("addAll", int.class, java.util.Collection.class));
+        plan.write(planFile);
+        // Header is magic, version and fingerprint, followed by the bean count, bean name, entry count, advice
+        // index and parameter count
+        int beanCountOffset = 16;
+        int parameterCountOffset = beanCountOffset + 4 + 4 + "fooBean".length() + 4 + 4;
+
+        // Run
+        writeInt(beanCountOffset, Integer.MAX_VALUE);
+        WeavingPlan corruptBeanCount = WeavingPlan.read(planFile);
+        writeInt(beanCountOffset, 1);
+        writeInt(parameterCountOffset, Integer.MAX_VALUE);
+        WeavingPlan corruptParameterCount = WeavingPlan.read(planFile);
+
+        // Verify
+        assertNull("Plan with a bean count larger than the file should not be read", corruptBeanCount);
+        assertNull("Plan with a parameter count larger than the file should not be read", corruptParameterCount);
+    }
+
+    @Test
+    public void testFingerprint_separatesValues() {
+        // Verify
+        assertFalse("Adjacent values should not collide", WeavingPlan.fingerprint(WeavingPlan.fingerprint(0, "ab"),
+                "c") == WeavingPlan.fingerprint(WeavingPlan.fingerprint(0, "a"), "bc"));
+    }
+
+    private void writeInt(int offset, int value) throws Exception {
+        RandomAccessFile file = new RandomAccessFile(planFile, "rw");
+        try {
+            file.seek(offset);
+            file.writeInt(value);
+        } finally {
+            file.close();
+        }
+    }
+
+}